@@ -0,0 +1,137 @@
+package io.github.mrblobman.spigotcommandlib.registry;
+
+import org.bukkit.permissions.*;
+import org.bukkit.plugin.Plugin;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link SubCommand#canBeExecutedBy(Permissible)}, which walks the flattened
+ * permission chain, with the recursive check it replaced for a sub command 4 levels deep.
+ * <p>
+ * With {@code distinct} permissions every level has a permission of its own and both
+ * checks make 4 permission lookups. With a {@code shared} permission every level requires
+ * the same one and the chain only keeps a single group.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermissionChainBenchmark {
+    private static final int DEPTH = 4;
+
+    @Param({ "distinct", "shared" })
+    public String permissions;
+
+    private SubCommand command;
+    private Permissible caller;
+
+    @Setup
+    public void setUp() {
+        Set<String> granted = new HashSet<>();
+        SubCommand command = null;
+        for (int i = 0; i < DEPTH; i++) {
+            String permission = this.permissions.equals("shared") ? "bench.use" : "bench.level" + i;
+            granted.add(permission);
+            command = new SubCommand("level" + i, new String[0], permission, command);
+        }
+        this.command = command;
+        this.caller = new GrantedPermissible(granted);
+    }
+
+    @Benchmark
+    public boolean flattened() {
+        return this.command.canBeExecutedBy(this.caller);
+    }
+
+    @Benchmark
+    public boolean recursive() {
+        return canBeExecutedRecursively(this.command, this.caller);
+    }
+
+    // The check before the chain was flattened, each level asks its super command first
+    private static boolean canBeExecutedRecursively(SubCommand command, Permissible caller) {
+        return (command.isBase() || canBeExecutedRecursively(command.getSuperCommand(), caller))
+                && command.isPermitted(caller);
+    }
+
+    /**
+     * Answers permission checks like a PermissibleBase, by looking up the lowercase name.
+     */
+    private static final class GrantedPermissible implements Permissible {
+        private final Set<String> granted;
+
+        GrantedPermissible(Set<String> granted) {
+            this.granted = granted;
+        }
+
+        @Override
+        public boolean hasPermission(String name) {
+            return this.granted.contains(name.toLowerCase(Locale.ENGLISH));
+        }
+
+        @Override
+        public boolean hasPermission(Permission perm) {
+            return this.hasPermission(perm.getName());
+        }
+
+        @Override
+        public boolean isPermissionSet(String name) {
+            return this.hasPermission(name);
+        }
+
+        @Override
+        public boolean isPermissionSet(Permission perm) {
+            return this.hasPermission(perm);
+        }
+
+        @Override
+        public PermissionAttachment addAttachment(Plugin plugin, String name, boolean value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public PermissionAttachment addAttachment(Plugin plugin) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public PermissionAttachment addAttachment(Plugin plugin, String name, boolean value, int ticks) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public PermissionAttachment addAttachment(Plugin plugin, int ticks) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void removeAttachment(PermissionAttachment attachment) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void recalculatePermissions() {}
+
+        @Override
+        public Set<PermissionAttachmentInfo> getEffectivePermissions() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isOp() {
+            return false;
+        }
+
+        @Override
+        public void setOp(boolean value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
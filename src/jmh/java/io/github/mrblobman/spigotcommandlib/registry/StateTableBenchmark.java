@@ -0,0 +1,61 @@
+package io.github.mrblobman.spigotcommandlib.registry;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares looking up the handle of a fragment in a {@link StateTable} with the
+ * {@code Map<Integer, ...>} it replaced. Each invocation looks up every state of the
+ * table once, and a state without a handle, like a dispatch in the wrong state.
+ * <p>
+ * {@code dense} states count up from 0 and index the array directly, {@code sparse}
+ * states are too large or negative for the array and are binary searched.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateTableBenchmark {
+    @Param({ "dense", "sparse" })
+    public String states;
+
+    @Param({ "4", "16" })
+    public int size;
+
+    private int[] lookups;
+    private StateTable<Object> table;
+    private Map<Integer, Object> map;
+
+    @Setup
+    public void setUp() {
+        Map<Integer, Object> entries = new HashMap<>();
+        this.lookups = new int[this.size + 1];
+        for (int i = 0; i < this.size; i++) {
+            int state = this.states.equals("dense") ? i : (i % 2 == 0 ? -1 - i : 5000 * (i + 1));
+            entries.put(state, new Object());
+            this.lookups[i] = state;
+        }
+        this.lookups[this.size] = this.states.equals("dense") ? this.size : 5000 * (this.size + 1);
+
+        this.table = new StateTable<>(entries);
+        this.map = new HashMap<>(entries);
+    }
+
+    @Benchmark
+    public void stateTable(Blackhole bh) {
+        for (int state : this.lookups)
+            bh.consume(this.table.get(state));
+    }
+
+    @Benchmark
+    public void boxedMap(Blackhole bh) {
+        for (int state : this.lookups)
+            bh.consume(this.map.get(state));
+    }
+}
@@ -23,6 +23,8 @@
  */
 package io.github.mrblobman.spigotcommandlib;
 
+import io.github.mrblobman.spigotcommandlib.registry.StateTransitions;
+
 /**
  * Used to store state information that will be carried through
  * fragment handlers. (See: {@link FragmentedCommandHandle}).
@@ -32,7 +34,9 @@ package io.github.mrblobman.spigotcommandlib;
 public class FragmentExecutionContext {
     public static final int DEFAULT_STATE = 0;
 
-    private int state;
+    // Read without the player's lock when checking which fragments can run
+    private volatile int state;
+    private StateTransitions transitions;
 
     public FragmentExecutionContext() {
         this.state = 0;
@@ -56,8 +60,35 @@ public class FragmentExecutionContext {
      * is in.
      *
      * @param state the new state for this executor's context.
+     *
+     * @throws IllegalArgumentException if the running fragment declares its
+     *                                  transitions and may not move to {@code state}.
      */
     public final void setState(int state) {
+        if (this.transitions != null && !this.transitions.isAllowed(this.state, state))
+            throw new IllegalArgumentException(String.format("Cannot move from state %d to state %d.", this.state, state));
         this.state = state;
     }
+
+    /**
+     * Get the state changes that are currently allowed.
+     *
+     * @return the transitions of the running fragment or null if
+     *         state changes are not checked.
+     */
+    public final StateTransitions getTransitions() {
+        return this.transitions;
+    }
+
+    /**
+     * Check every state change against the {@code transitions}. The
+     * library sets the transitions declared by a fragment while that
+     * fragment runs and restores the previous ones afterwards. State
+     * changes made outside of a fragment are not checked.
+     *
+     * @param transitions the allowed state changes or null to allow any
+     */
+    public final void setTransitions(StateTransitions transitions) {
+        this.transitions = transitions;
+    }
 }
@@ -43,6 +43,21 @@ public @interface FragmentedCommandHandle {
      */
     int state() default 0;
 
+    /**
+     * The states that this fragment may move the context to with
+     * {@link FragmentExecutionContext#setState(int)}.
+     * <p>
+     * Transitions are only checked once a fragment of the handler declares
+     * some, and then every fragment of the handler is checked. A fragment
+     * without transitions must then leave the state as it is. The check is
+     * made while the fragment runs, so each fragment is held to its own
+     * declaration even when it shares a state with others. Each declared
+     * state must be the {@link #state()} of a fragment in the same handler.
+     *
+     * @return the states this fragment may move to.
+     */
+    int[] transitions() default {};
+
     /**
      * Specifies the sub command that this method handles.
      * Ex: /baseCommand subCmd1 subCmd2 = <code>new String[] {"baseCommand|baseAlias1", "subCmd1|alias1|alias2",
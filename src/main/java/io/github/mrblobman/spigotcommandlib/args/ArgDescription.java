@@ -54,4 +54,16 @@ public @interface ArgDescription {
      * @return true if this arg is optional, false if it is required
      */
     boolean optional() default false;
+
+    /**
+     * @return the values to suggest when this arg is tab completed, in place of
+     *         the suggestions for its type
+     */
+    String[] completions() default {};
+
+    /**
+     * @return true if the names of online players should be suggested when this arg is
+     *         tab completed, in place of the suggestions for its type
+     */
+    boolean completePlayers() default false;
 }
@@ -27,73 +27,47 @@ import org.bukkit.Color;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 public class ArgumentFormatter<T> {
     public static final ArgumentFormatter<String> STRING = new ArgumentFormatter<>(
             String.class,
-            "^.*$",
             (String arg) -> arg,
+            CompletionProvider.NONE,
             "String",
             "A sequence of characters.",
             "Ex: IAmAString or \"I Am A String\"");
 
-    public static final ArgumentFormatter<Boolean> BOOLEAN = new ArgumentFormatter<>(
-            Boolean.class,
-            "^true|false|yes|no$",
-            (String arg) -> {
-                switch (arg.toLowerCase()) {
-                    case "true":
-                    case "yes":
-                        return true;
-                    default:
-                        return false;
-                }
-            },
+    public static final OfBoolean BOOLEAN = new OfBoolean(
             "Boolean",
             "A true or false value.",
             "Ex: true, false, yes, no");
 
-    public static final ArgumentFormatter<Integer> INTEGER = new ArgumentFormatter<>(
-            Integer.class,
-            "^\\-?\\d+$",
-            Integer::parseInt,
+    public static final OfInt INTEGER = new OfInt(
             "Integer",
             "A sequence of digits 0-9 with",
             "an optional starting - sign.",
             "Ex: -4536 (Min: " + Integer.MIN_VALUE + " Max: " + Integer.MAX_VALUE + ")");
 
-    public static final ArgumentFormatter<Long> LONG = new ArgumentFormatter<>(
-            Long.class,
-            "^\\-?\\d+$",
-            Long::parseLong,
+    public static final OfLong LONG = new OfLong(
             "Long",
             "A sequence of digits 0-9 with",
             "an optional starting - sign.",
             "Ex: -9287 (Min: " + Long.MIN_VALUE + " Max: " + Long.MAX_VALUE + ")");
 
-    public static final ArgumentFormatter<Short> SHORT = new ArgumentFormatter<>(
-            Short.class,
-            "^\\-?\\d+$",
-            Short::parseShort,
+    public static final OfShort SHORT = new OfShort(
             "Short",
             "A sequence of digits 0-9 with",
             "an optional starting - sign.",
             "Ex: -4536 (Min: " + Short.MIN_VALUE + " Max: " + Short.MAX_VALUE + ")");
 
-    public static final ArgumentFormatter<Double> DOUBLE = new ArgumentFormatter<>(
-            Double.class,
-            "^\\-?\\d+(\\.(\\d)+)?$",
-            Double::parseDouble,
+    public static final OfDouble DOUBLE = new OfDouble(
             "Double",
             "A sequence of digits 0-9 with an optional",
             "starting - sign and decimal portion.",
             "Ex: -93.2 (Min: " + Double.MIN_VALUE + " Max: " + Double.MAX_VALUE + ")");
 
-    public static final ArgumentFormatter<Float> FLOAT = new ArgumentFormatter<>(
-            Float.class,
-            "^\\-?\\d+(\\.(\\d)+)?$",
-            Float::parseFloat,
+    public static final OfFloat FLOAT = new OfFloat(
             "Float",
             "A sequence of digits 0-9 with an optional",
             "starting - sign and decimal portion.",
@@ -101,33 +75,214 @@ public class ArgumentFormatter<T> {
 
     public static final ArgumentFormatter<Color> COLOR = new ArgumentFormatter<>(
             Color.class,
-            "^(0*)((1?[0-9]?[0-9])|([2][0-4][0-9])|(25[0-5]))," +
-                    "(0*)((1?[0-9]?[0-9])|([2][0-4][0-9])|(25[0-5]))," +
-                    "(0*)((1?[0-9]?[0-9])|([2][0-4][0-9])|(25[0-5]))$",
-            (String arg) -> {
-                String[] parts = arg.split(",");
-                return Color.fromRGB(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
-            },
+            ArgumentScanners::scanColor,
+            CompletionProvider.of(namedColors()),
             "Color",
             "3 number values ranging from 0-255",
             "separated by commas representing the",
             "3 RGB values in the color.",
             "Ex: 0,255,13");
 
+    // The named colors in the format accepted by COLOR
+    private static String[] namedColors() {
+        return Stream.of(Color.WHITE, Color.SILVER, Color.GRAY, Color.BLACK, Color.RED, Color.MAROON,
+                Color.YELLOW, Color.OLIVE, Color.LIME, Color.GREEN, Color.AQUA, Color.TEAL, Color.BLUE,
+                Color.NAVY, Color.FUCHSIA, Color.PURPLE, Color.ORANGE)
+                .map(color -> color.getRed() + "," + color.getGreen() + "," + color.getBlue())
+                .toArray(String[]::new);
+    }
+
     private interface ArgumentParser<T> {
+        /**
+         * @return the parsed argument or null if {@code arg} is invalid
+         */
         T parse(String arg);
     }
 
-    private Pattern pattern;
+    /**
+     * A formatter for a primitive type. These formatters can parse an argument without boxing it.
+     *
+     * @param <T> the boxed type of the primitive
+     */
+    public static abstract class OfPrimitive<T> extends ArgumentFormatter<T> {
+        private OfPrimitive(Class<T> parseType, CompletionProvider completions, String typeName, String... typeDesc) {
+            super(parseType, null, completions, typeName, typeDesc);
+        }
+
+        /**
+         * Parse {@code arg} into the raw bits of the primitive. Integral types are sign extended,
+         * booleans are 1 or 0, floats are their {@link Float#floatToRawIntBits(float) int bits}
+         * and doubles are their {@link Double#doubleToRawLongBits(double) long bits}.
+         *
+         * @param arg   the argument to parse
+         * @param dest  the array to store the bits in
+         * @param index the index in {@code dest} to store the bits at
+         *
+         * @return true iff {@code arg} could be parsed. {@code dest} is not modified otherwise.
+         */
+        public abstract boolean tryParseBits(String arg, long[] dest, int index);
+
+        abstract T box(long bits);
+
+        /**
+         * Parse {@code arg} into the raw bits of the primitive.
+         *
+         * @param arg the argument to parse
+         *
+         * @return the bits of the parsed argument
+         *
+         * @throws ParseException if {@code arg} cannot be parsed
+         * @see #tryParseBits(String, long[], int)
+         */
+        public long parseBits(String arg) {
+            long[] bits = new long[1];
+            if (!this.tryParseBits(arg, bits, 0))
+                throw this.invalid(arg);
+            return bits[0];
+        }
+
+        @Override
+        public boolean canBeParsedFrom(String arg) {
+            return this.tryParseBits(arg, new long[1], 0);
+        }
+
+        @Override
+        public T tryParse(String arg) {
+            long[] bits = new long[1];
+            return this.tryParseBits(arg, bits, 0) ? this.box(bits[0]) : null;
+        }
+    }
+
+    public static final class OfBoolean extends OfPrimitive<Boolean> {
+        private OfBoolean(String typeName, String... typeDesc) {
+            super(Boolean.class, CompletionProvider.of("true", "false", "yes", "no"), typeName, typeDesc);
+        }
+
+        public boolean parseBoolean(String arg) {
+            return this.parseBits(arg) != 0;
+        }
+
+        @Override
+        public boolean tryParseBits(String arg, long[] dest, int index) {
+            return ArgumentScanners.scanBoolean(arg, dest, index);
+        }
+
+        @Override
+        Boolean box(long bits) {
+            return bits != 0;
+        }
+    }
+
+    public static final class OfInt extends OfPrimitive<Integer> {
+        private OfInt(String typeName, String... typeDesc) {
+            super(Integer.class, CompletionProvider.NONE, typeName, typeDesc);
+        }
+
+        public int parseInt(String arg) {
+            return (int) this.parseBits(arg);
+        }
+
+        @Override
+        public boolean tryParseBits(String arg, long[] dest, int index) {
+            return ArgumentScanners.scanInteger(arg, Integer.MIN_VALUE, Integer.MAX_VALUE, dest, index);
+        }
+
+        @Override
+        Integer box(long bits) {
+            return (int) bits;
+        }
+    }
+
+    public static final class OfLong extends OfPrimitive<Long> {
+        private OfLong(String typeName, String... typeDesc) {
+            super(Long.class, CompletionProvider.NONE, typeName, typeDesc);
+        }
+
+        public long parseLong(String arg) {
+            return this.parseBits(arg);
+        }
+
+        @Override
+        public boolean tryParseBits(String arg, long[] dest, int index) {
+            return ArgumentScanners.scanInteger(arg, Long.MIN_VALUE, Long.MAX_VALUE, dest, index);
+        }
+
+        @Override
+        Long box(long bits) {
+            return bits;
+        }
+    }
+
+    public static final class OfShort extends OfPrimitive<Short> {
+        private OfShort(String typeName, String... typeDesc) {
+            super(Short.class, CompletionProvider.NONE, typeName, typeDesc);
+        }
+
+        public short parseShort(String arg) {
+            return (short) this.parseBits(arg);
+        }
+
+        @Override
+        public boolean tryParseBits(String arg, long[] dest, int index) {
+            return ArgumentScanners.scanInteger(arg, Short.MIN_VALUE, Short.MAX_VALUE, dest, index);
+        }
+
+        @Override
+        Short box(long bits) {
+            return (short) bits;
+        }
+    }
+
+    public static final class OfDouble extends OfPrimitive<Double> {
+        private OfDouble(String typeName, String... typeDesc) {
+            super(Double.class, CompletionProvider.NONE, typeName, typeDesc);
+        }
+
+        public double parseDouble(String arg) {
+            return Double.longBitsToDouble(this.parseBits(arg));
+        }
+
+        @Override
+        public boolean tryParseBits(String arg, long[] dest, int index) {
+            return ArgumentScanners.scanDecimal(arg, false, dest, index);
+        }
+
+        @Override
+        Double box(long bits) {
+            return Double.longBitsToDouble(bits);
+        }
+    }
+
+    public static final class OfFloat extends OfPrimitive<Float> {
+        private OfFloat(String typeName, String... typeDesc) {
+            super(Float.class, CompletionProvider.NONE, typeName, typeDesc);
+        }
+
+        public float parseFloat(String arg) {
+            return Float.intBitsToFloat((int) this.parseBits(arg));
+        }
+
+        @Override
+        public boolean tryParseBits(String arg, long[] dest, int index) {
+            return ArgumentScanners.scanDecimal(arg, true, dest, index);
+        }
+
+        @Override
+        Float box(long bits) {
+            return Float.intBitsToFloat((int) bits);
+        }
+    }
+
     private ArgumentParser<T> parser;
+    private CompletionProvider completions;
     private String typeName;
     private String[] typeDesc;
     private Class<T> formatType;
 
-    private ArgumentFormatter(Class<T> parseType, String pattern, ArgumentParser<T> parser, String typeName, String... typeDesc) {
+    private ArgumentFormatter(Class<T> parseType, ArgumentParser<T> parser, CompletionProvider completions, String typeName, String... typeDesc) {
         this.formatType = parseType;
-        this.pattern = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE);
         this.parser = parser;
+        this.completions = completions;
         this.typeName = typeName;
         this.typeDesc = typeDesc;
     }
@@ -140,25 +295,46 @@ public class ArgumentFormatter<T> {
      * @return true iff {@link ArgumentFormatter#parse(String)} will successfully complete for {@code arg}
      */
     public boolean canBeParsedFrom(String arg) {
-        return this.pattern.matcher(arg).matches();
+        return this.tryParse(arg) != null;
     }
 
     /**
-     * Parse {@code arg} as this argument type.<br>
-     * This may throw all sorts of strange errors if arg is invalid.<br>
-     * To prevent this see {@link ArgumentFormatter#canBeParsedFrom(String)}
+     * Validate and parse {@code arg} as this argument type in a single pass.
+     *
+     * @param arg the argument to parse
+     *
+     * @return the parsed argument or null if {@code arg} cannot be parsed
+     */
+    public T tryParse(String arg) {
+        return this.parser.parse(arg);
+    }
+
+    /**
+     * Parse {@code arg} as this argument type.
      *
      * @param arg the argument to parse
      *
      * @return the parsed argument.
+     *
+     * @throws ParseException if {@code arg} cannot be parsed
+     * @see #tryParse(String)
      */
     public T parse(String arg) {
-        try {
-            return this.parser.parse(arg);
-        } catch (Exception e) {
-            if (!(e instanceof ParseException)) throw new ParseException(e);
-            throw e;
-        }
+        T value = this.tryParse(arg);
+        if (value == null)
+            throw this.invalid(arg);
+        return value;
+    }
+
+    ParseException invalid(String arg) {
+        return new ParseException("'" + arg + "' is not a valid " + this.typeName + ".");
+    }
+
+    /**
+     * @return the provider suggesting values for arguments of this type
+     */
+    public CompletionProvider getCompletions() {
+        return this.completions;
     }
 
     /**
@@ -0,0 +1,166 @@
+package io.github.mrblobman.spigotcommandlib.args;
+
+import org.bukkit.Color;
+
+/**
+ * Hand written scanners for the built in argument formats. Each scanner validates
+ * and converts its argument in a single pass and reports an invalid argument with
+ * its return value rather than an exception.
+ */
+final class ArgumentScanners {
+    // Integers up to these bounds convert to a double/float without rounding
+    private static final long MAX_EXACT_DOUBLE = 1L << 53;
+    private static final long MAX_EXACT_FLOAT = 1L << 24;
+
+    // The powers of ten that are exactly representable as a double/float
+    private static final double[] DOUBLE_POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final float[] FLOAT_POW10 = {
+            1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    private ArgumentScanners() {}
+
+    /**
+     * Scan {@code -?[0-9]+} with a value in {@code [min, max]}.
+     *
+     * @return true iff the argument is valid, in which case its value is stored in {@code dest[index]}.
+     */
+    static boolean scanInteger(String arg, long min, long max, long[] dest, int index) {
+        int len = arg.length();
+        int i = 0;
+        boolean negative = len > 0 && arg.charAt(0) == '-';
+        if (negative)
+            i++;
+        if (i == len)
+            return false;
+
+        // Accumulate negatively like Long#parseLong, the negative range is the larger one
+        long limit = negative ? min : -max;
+        long multMin = limit / 10;
+        long result = 0;
+        for (; i < len; i++) {
+            int digit = arg.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || result < multMin)
+                return false;
+            result *= 10;
+            if (result < limit + digit)
+                return false;
+            result -= digit;
+        }
+
+        dest[index] = negative ? result : -result;
+        return true;
+    }
+
+    /**
+     * Scan {@code -?[0-9]+(\.[0-9]+)?} as a double or float.
+     *
+     * @return true iff the argument is valid, in which case the raw bits of its value are stored
+     *         in {@code dest[index]}.
+     */
+    static boolean scanDecimal(String arg, boolean asFloat, long[] dest, int index) {
+        int len = arg.length();
+        int i = 0;
+        boolean negative = len > 0 && arg.charAt(0) == '-';
+        if (negative)
+            i++;
+
+        long maxExact = asFloat ? MAX_EXACT_FLOAT : MAX_EXACT_DOUBLE;
+        long mantissa = 0;
+        boolean exact = true;
+
+        int intStart = i;
+        for (; i < len && isDigit(arg.charAt(i)); i++) {
+            mantissa = mantissa * 10 + (arg.charAt(i) - '0');
+            exact &= mantissa <= maxExact;
+            // Stop before overflowing, the value is no longer used once inexact
+            if (!exact) mantissa = 0;
+        }
+        if (i == intStart)
+            return false;
+
+        int fractionDigits = 0;
+        if (i < len) {
+            if (arg.charAt(i++) != '.')
+                return false;
+            int fractionStart = i;
+            for (; i < len && isDigit(arg.charAt(i)); i++) {
+                mantissa = mantissa * 10 + (arg.charAt(i) - '0');
+                exact &= mantissa <= maxExact;
+                if (!exact) mantissa = 0;
+            }
+            if (i == fractionStart || i < len)
+                return false;
+            fractionDigits = i - fractionStart;
+        }
+
+        // When both the mantissa and the power of ten are exact the division is correctly
+        // rounded. Anything else is already validated so the JDK can convert it without throwing.
+        // The sign is applied last so -0 is -0.0
+        if (asFloat) {
+            float value = exact && fractionDigits < FLOAT_POW10.length
+                    ? mantissa / FLOAT_POW10[fractionDigits]
+                    : Math.abs(Float.parseFloat(arg));
+            dest[index] = Float.floatToRawIntBits(negative ? -value : value);
+        } else {
+            double value = exact && fractionDigits < DOUBLE_POW10.length
+                    ? mantissa / DOUBLE_POW10[fractionDigits]
+                    : Math.abs(Double.parseDouble(arg));
+            dest[index] = Double.doubleToRawLongBits(negative ? -value : value);
+        }
+        return true;
+    }
+
+    /**
+     * Scan one of {@code true}, {@code false}, {@code yes} or {@code no} ignoring case.
+     *
+     * @return true iff the argument is valid, in which case 1 (true) or 0 (false) is stored
+     *         in {@code dest[index]}.
+     */
+    static boolean scanBoolean(String arg, long[] dest, int index) {
+        if (arg.equalsIgnoreCase("true") || arg.equalsIgnoreCase("yes")) {
+            dest[index] = 1;
+            return true;
+        }
+        if (arg.equalsIgnoreCase("false") || arg.equalsIgnoreCase("no")) {
+            dest[index] = 0;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Scan 3 comma separated numbers from 0 to 255.
+     *
+     * @return the color or null if the argument is invalid.
+     */
+    static Color scanColor(String arg) {
+        int len = arg.length();
+        int i = 0;
+        int rgb = 0;
+        for (int c = 0; c < 3; c++) {
+            if (c > 0 && (i == len || arg.charAt(i++) != ','))
+                return null;
+
+            int start = i;
+            int value = 0;
+            for (; i < len && isDigit(arg.charAt(i)); i++) {
+                value = value * 10 + (arg.charAt(i) - '0');
+                if (value > 255)
+                    return null;
+            }
+            if (i == start)
+                return null;
+            rgb = rgb << 8 | value;
+        }
+
+        return i == len ? Color.fromRGB(rgb >> 16, (rgb >> 8) & 0xFF, rgb & 0xFF) : null;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -34,15 +34,25 @@ public class CommandParameter<T> {
     private final CommandParameterKind kind;
     private final ArgumentFormatter<T> formatter;
     private final Class type;
+    private final CompletionProvider completions;
 
     private final String name;
     private final List<String> desc;
 
     public CommandParameter(CommandParameterKind kind, ArgumentFormatter<T> formatter, Class argClass, String name, List<String> desc) {
+        this(kind, formatter, argClass, name, desc, formatter.getCompletions());
+    }
+
+    /**
+     * Construct a parameter that suggests values from {@code completions} rather than
+     * the {@link ArgumentFormatter#getCompletions() formatter's} completions.
+     */
+    public CommandParameter(CommandParameterKind kind, ArgumentFormatter<T> formatter, Class argClass, String name, List<String> desc, CompletionProvider completions) {
         this.kind = kind;
         this.formatter = formatter;
         this.type = argClass;
         this.name = name;
+        this.completions = completions;
 
         if (desc == null) {
             this.desc = new ArrayList<>(formatter.getTypeDesc().length + 1);
@@ -101,6 +111,16 @@ public class CommandParameter<T> {
         return this.formatter;
     }
 
+    /**
+     * Get the {@link CompletionProvider} suggesting values for this
+     * parameter while it is being typed.
+     *
+     * @return the completion provider for this parameter.
+     */
+    public CompletionProvider getCompletions() {
+        return this.completions;
+    }
+
     /**
      * Get the type that this argument is declared as.
      *
@@ -69,6 +69,24 @@ public class CommandParameters implements Iterable<CommandParameter<?>> {
         return this.varargParam;
     }
 
+    /**
+     * Find the parameter that the argument at {@code index} is parsed as.
+     *
+     * @param index the index of the argument
+     *
+     * @return the parameter or null if there are not that many parameters.
+     */
+    public CommandParameter<?> getParameter(int index) {
+        if (index < this.requiredParams.size())
+            return this.requiredParams.get(index);
+
+        index -= this.requiredParams.size();
+        if (index < this.optionalParams.size())
+            return this.optionalParams.get(index);
+
+        return this.varargParam;
+    }
+
     public boolean hasVararg() {
         return this.varargParam != null;
     }
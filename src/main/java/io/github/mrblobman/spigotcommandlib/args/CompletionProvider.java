@@ -0,0 +1,78 @@
+package io.github.mrblobman.spigotcommandlib.args;
+
+import io.github.mrblobman.spigotcommandlib.registry.CommandLib;
+import io.github.mrblobman.spigotcommandlib.util.SearchUtils;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Suggests values for an argument while it is being typed.
+ */
+@FunctionalInterface
+public interface CompletionProvider {
+    /**
+     * Suggests nothing.
+     */
+    CompletionProvider NONE = (sender, prefix, limit) -> Collections.emptyList();
+
+    /**
+     * Suggests the names of the online players that the sender can see. The players
+     * are not thread safe so off the main thread this suggests nothing and the completion
+     * is left to the main thread.
+     */
+    CompletionProvider ONLINE_PLAYERS = (sender, prefix, limit) -> {
+        if (!Bukkit.isPrimaryThread())
+            return Collections.emptyList();
+
+        List<String> names = new ArrayList<>();
+        for (Player player : Bukkit.getOnlinePlayers())
+            if (SearchUtils.startsWithIgnoreCase(player.getName(), prefix)
+                    && (!(sender instanceof Player) || ((Player) sender).canSee(player)))
+                names.add(player.getName());
+
+        names.sort(String.CASE_INSENSITIVE_ORDER);
+        return limit == CommandLib.NO_LIMIT || names.size() <= limit ? names : names.subList(0, limit);
+    };
+
+    /**
+     * Suggest from a fixed set of values. The values are sorted once so that each completion
+     * only visits the values starting with the prefix.
+     *
+     * @param values the values to suggest
+     *
+     * @return the provider
+     */
+    static CompletionProvider of(String... values) {
+        String[] sorted = Arrays.stream(values)
+                .distinct()
+                .sorted(String.CASE_INSENSITIVE_ORDER)
+                .toArray(String[]::new);
+
+        return (sender, prefix, limit) -> {
+            int start = SearchUtils.prefixStart(sorted, prefix);
+            int end = SearchUtils.prefixEnd(sorted, prefix);
+            if (limit != CommandLib.NO_LIMIT)
+                end = Math.min(end, start + limit);
+            return start == end
+                    ? Collections.emptyList()
+                    : Collections.unmodifiableList(Arrays.asList(sorted).subList(start, end));
+        };
+    }
+
+    /**
+     * Suggest values for the argument the {@code sender} is typing.
+     *
+     * @param sender the sender typing the argument
+     * @param prefix the part of the argument typed so far
+     * @param limit  the maximum number of suggestions. See: {@link CommandLib#NO_LIMIT}
+     *
+     * @return the suggestions starting with {@code prefix}, ignoring case
+     */
+    List<String> complete(CommandSender sender, String prefix, int limit);
+}
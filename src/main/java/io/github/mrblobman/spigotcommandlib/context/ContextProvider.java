@@ -1,10 +1,23 @@
 package io.github.mrblobman.spigotcommandlib.context;
 
 import java.util.UUID;
+import java.util.concurrent.locks.Lock;
 
 public interface ContextProvider<T> {
     public CommandContext<T> getContextInstance(UUID owner);
 
     // The returned context must not be destroy()ed already.
     public CommandContext<T> getOrCreateContextInstance(UUID owner);
+
+    // Destroy the owner's context if it has one, for example when the owner leaves.
+    public default void evict(UUID owner) {
+        CommandContext<T> context = this.getContextInstance(owner);
+        if (context != null)
+            context.destroy();
+    }
+
+    // The lock that fragments executed by the owner must hold, or null if they may run concurrently.
+    public default Lock getLock(UUID owner) {
+        return null;
+    }
 }
@@ -0,0 +1,165 @@
+package io.github.mrblobman.spigotcommandlib.context;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * A {@link ContextProvider} that removes contexts after they have not been used for a timeout.
+ * <p>
+ * Contexts are kept on a hashed timing wheel, a ring of slots that each cover one tick. A context
+ * is put in the slot of the tick it would expire at and is not moved when it is used again. When
+ * {@link #expire()} reaches its slot it either expires or, if it was used in the meantime, moves
+ * to the slot of its new expiry. Each use and each expiry is therefore a constant amount of work.
+ *
+ * @param <T> the type of the context data
+ */
+public class ExpiringContextProvider<T> implements ContextProvider<T> {
+    private static final int WHEEL_SIZE = 512;
+
+    private class ExpiringCommandContext extends BaseCommandContext<T> {
+        private volatile long lastUsed;
+
+        public ExpiringCommandContext(UUID owner, T data, long now) {
+            super(owner, data);
+            this.lastUsed = now;
+        }
+
+        @Override
+        public void destroy() {
+            ExpiringContextProvider.this.remove(this);
+        }
+    }
+
+    private final Supplier<T> dataSupplier;
+    private final BiConsumer<UUID, T> onCleanup;
+    private final Map<UUID, ExpiringCommandContext> active;
+
+    private final long timeoutNanos;
+    private final long tickNanos;
+    private final long start;
+    private final List<List<ExpiringCommandContext>> wheel;
+    // The last tick that was expired, guarded by this
+    private long currentTick;
+
+    /**
+     * @param dataSupplier the supplier creating the data of new contexts
+     * @param timeout      the time a context may go unused before it is removed
+     * @param tick         the length of a tick on the wheel. Contexts expire up to one tick late.
+     * @param unit         the unit of {@code timeout} and {@code tick}
+     * @param onCleanup    called with the owner and data of every removed context
+     */
+    public ExpiringContextProvider(Supplier<T> dataSupplier, long timeout, long tick, TimeUnit unit, BiConsumer<UUID, T> onCleanup) {
+        if (timeout <= 0 || tick <= 0)
+            throw new IllegalArgumentException("timeout and tick must be positive");
+
+        this.dataSupplier = dataSupplier;
+        this.onCleanup = onCleanup;
+        this.active = new ConcurrentHashMap<>();
+
+        this.timeoutNanos = unit.toNanos(timeout);
+        this.tickNanos = unit.toNanos(tick);
+        this.start = System.nanoTime();
+        this.wheel = new ArrayList<>(WHEEL_SIZE);
+        for (int i = 0; i < WHEEL_SIZE; i++)
+            this.wheel.add(new ArrayList<>());
+    }
+
+    @Override
+    public CommandContext<T> getContextInstance(UUID owner) {
+        return this.active.get(owner);
+    }
+
+    @Override
+    public CommandContext<T> getOrCreateContextInstance(UUID owner) {
+        long now = System.nanoTime();
+        ExpiringCommandContext context = this.active.get(owner);
+        if (context != null) {
+            // Picked up by the wheel when it reaches the old expiry. A context used just as it
+            // expires may still be removed, as if it was used a moment later.
+            context.lastUsed = now;
+            return context;
+        }
+
+        // Only new contexts lock, to be put on the wheel
+        synchronized (this) {
+            context = this.active.get(owner);
+            if (context != null) {
+                context.lastUsed = now;
+                return context;
+            }
+
+            context = new ExpiringCommandContext(owner, this.dataSupplier.get(), now);
+            this.active.put(owner, context);
+            this.schedule(context);
+            return context;
+        }
+    }
+
+    /**
+     * Remove every context that has not been used for the timeout. This should be called
+     * at least once every tick, see {@link #getTick(TimeUnit)}.
+     */
+    public void expire() {
+        List<ExpiringCommandContext> expired = new ArrayList<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            long nowTick = (now - this.start) / this.tickNanos;
+
+            // After falling a whole turn behind every slot is due
+            long from = Math.max(this.currentTick + 1, nowTick - WHEEL_SIZE + 1);
+            for (long tick = from; tick <= nowTick; tick++) {
+                int slot = (int) (tick & (WHEEL_SIZE - 1));
+                List<ExpiringCommandContext> due = this.wheel.get(slot);
+                if (due.isEmpty())
+                    continue;
+                this.wheel.set(slot, new ArrayList<>());
+
+                for (ExpiringCommandContext context : due) {
+                    // Destroyed contexts are dropped here
+                    if (this.active.get(context.getOwner()) != context)
+                        continue;
+
+                    if (now - context.lastUsed >= this.timeoutNanos) {
+                        // A concurrent destroy may have removed and cleaned it up already
+                        if (this.active.remove(context.getOwner(), context))
+                            expired.add(context);
+                    } else {
+                        this.schedule(context);
+                    }
+                }
+            }
+            this.currentTick = nowTick;
+        }
+
+        // Outside of the lock so the handler may use this provider again
+        for (ExpiringCommandContext context : expired)
+            this.onCleanup.accept(context.getOwner(), context.getData());
+    }
+
+    public long getTimeout(TimeUnit unit) {
+        return unit.convert(this.timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getTick(TimeUnit unit) {
+        return unit.convert(this.tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Put the context in the slot of the first tick at or after its expiry, guarded by this
+    private void schedule(ExpiringCommandContext context) {
+        long expiresAt = context.lastUsed + this.timeoutNanos - this.start;
+        long tick = Math.max(this.currentTick + 1, (expiresAt + this.tickNanos - 1) / this.tickNanos);
+        this.wheel.get((int) (tick & (WHEEL_SIZE - 1))).add(context);
+    }
+
+    private void remove(ExpiringCommandContext context) {
+        // The wheel drops the context when it reaches it
+        if (this.active.remove(context.getOwner(), context))
+            this.onCleanup.accept(context.getOwner(), context.getData());
+    }
+}
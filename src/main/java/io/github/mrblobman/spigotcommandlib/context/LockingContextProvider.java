@@ -0,0 +1,68 @@
+package io.github.mrblobman.spigotcommandlib.context;
+
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link ContextProvider} that serializes the fragments executed by each owner. Owners
+ * are spread over a fixed number of lock stripes by their unique id, so fragments of
+ * different owners only wait on each other when they happen to share a stripe.
+ *
+ * @param <T> the type of the context data
+ */
+public class LockingContextProvider<T> implements ContextProvider<T> {
+    private final ContextProvider<T> delegate;
+    private final Lock[] stripes;
+    private final int mask;
+
+    /**
+     * Use a stripe count scaled to the number of processors.
+     *
+     * @param delegate the provider holding the contexts
+     */
+    public LockingContextProvider(ContextProvider<T> delegate) {
+        this(delegate, Runtime.getRuntime().availableProcessors() * 16);
+    }
+
+    /**
+     * @param delegate the provider holding the contexts
+     * @param stripes  the number of locks, rounded up to a power of two
+     */
+    public LockingContextProvider(ContextProvider<T> delegate, int stripes) {
+        if (stripes <= 0)
+            throw new IllegalArgumentException("stripes must be positive");
+
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes)
+            size <<= 1;
+
+        this.delegate = delegate;
+        this.stripes = new Lock[size];
+        for (int i = 0; i < size; i++)
+            this.stripes[i] = new ReentrantLock();
+        this.mask = size - 1;
+    }
+
+    @Override
+    public CommandContext<T> getContextInstance(UUID owner) {
+        return this.delegate.getContextInstance(owner);
+    }
+
+    @Override
+    public CommandContext<T> getOrCreateContextInstance(UUID owner) {
+        return this.delegate.getOrCreateContextInstance(owner);
+    }
+
+    @Override
+    public void evict(UUID owner) {
+        // Not locked, a fragment running on another thread keeps its data after the eviction
+        this.delegate.evict(owner);
+    }
+
+    @Override
+    public Lock getLock(UUID owner) {
+        int hash = owner.hashCode();
+        return this.stripes[(hash ^ (hash >>> 16)) & this.mask];
+    }
+}
@@ -3,6 +3,7 @@ package io.github.mrblobman.spigotcommandlib.context;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 import java.util.function.Supplier;
 
 public class SimpleContextProvider<T> implements ContextProvider<T> {
@@ -13,15 +14,22 @@ public class SimpleContextProvider<T> implements ContextProvider<T> {
 
         @Override
         public void destroy() {
-            SimpleContextProvider.this.active.remove(this.getOwner(), this);
+            if (SimpleContextProvider.this.active.remove(this.getOwner(), this))
+                SimpleContextProvider.this.onCleanup.accept(this.getOwner(), this.getData());
         }
     }
 
     private final Supplier<T> dataSupplier;
+    private final BiConsumer<UUID, T> onCleanup;
     private final Map<UUID, SimpleCommandContext> active;
 
     public SimpleContextProvider(Supplier<T> dataSupplier) {
+        this(dataSupplier, (owner, data) -> {});
+    }
+
+    public SimpleContextProvider(Supplier<T> dataSupplier, BiConsumer<UUID, T> onCleanup) {
         this.dataSupplier = dataSupplier;
+        this.onCleanup = onCleanup;
         this.active = new ConcurrentHashMap<>();
     }
 
@@ -1,10 +1,14 @@
 package io.github.mrblobman.spigotcommandlib.invocation;
 
+/**
+ * Thrown when the sender gives too few or too many arguments.
+ */
 public class ArgumentCountException extends CommandInvocationException {
     private final int amtGiven;
     private final int amtExpected;
 
     public ArgumentCountException(int amtGiven, int amtExpected) {
+        super(null, null, false, false);
         this.amtGiven = amtGiven;
         this.amtExpected = amtExpected;
     }
@@ -0,0 +1,136 @@
+package io.github.mrblobman.spigotcommandlib.invocation;
+
+import io.github.mrblobman.spigotcommandlib.args.ArgumentFormatter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+
+/**
+ * The arguments for a single call to a handler method. Each argument has a slot that
+ * either holds a reference or, for arguments of a primitive type, the raw bits of the
+ * value so that they are never boxed. See {@link ArgumentFormatter.OfPrimitive#parseBits(String) OfPrimitive#parseBits(String)} for the encoding.
+ */
+public final class ArgumentFrame {
+    private static final MethodHandle GET_REF;
+    private static final MethodHandle GET_BITS;
+    private static final MethodHandle INT_BITS_TO_FLOAT;
+    private static final MethodHandle LONG_BITS_TO_DOUBLE;
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            GET_REF = lookup.findVirtual(ArgumentFrame.class, "getRef", MethodType.methodType(Object.class, int.class));
+            GET_BITS = lookup.findVirtual(ArgumentFrame.class, "getBits", MethodType.methodType(long.class, int.class));
+            INT_BITS_TO_FLOAT = lookup.findStatic(Float.class, "intBitsToFloat", MethodType.methodType(float.class, int.class));
+            LONG_BITS_TO_DOUBLE = lookup.findStatic(Double.class, "longBitsToDouble", MethodType.methodType(double.class, long.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Object[] refs;
+    private final long[] bits;
+    // True while a call is using the frame
+    boolean inUse;
+
+    ArgumentFrame(int size) {
+        this.refs = new Object[size];
+        this.bits = new long[size];
+    }
+
+    public int size() {
+        return this.refs.length;
+    }
+
+    public Object getRef(int slot) {
+        return this.refs[slot];
+    }
+
+    public long getBits(int slot) {
+        return this.bits[slot];
+    }
+
+    public boolean getBoolean(int slot) {
+        return this.bits[slot] != 0;
+    }
+
+    public int getInt(int slot) {
+        return (int) this.bits[slot];
+    }
+
+    public long getLong(int slot) {
+        return this.bits[slot];
+    }
+
+    public short getShort(int slot) {
+        return (short) this.bits[slot];
+    }
+
+    public double getDouble(int slot) {
+        return Double.longBitsToDouble(this.bits[slot]);
+    }
+
+    public float getFloat(int slot) {
+        return Float.intBitsToFloat((int) this.bits[slot]);
+    }
+
+    void setRef(int slot, Object value) {
+        this.refs[slot] = value;
+    }
+
+    void setBits(int slot, long value) {
+        this.bits[slot] = value;
+    }
+
+    boolean parseBits(int slot, ArgumentFormatter.OfPrimitive<?> formatter, String arg) {
+        return formatter.tryParseBits(arg, this.bits, slot);
+    }
+
+    /**
+     * Drop all references so they are not kept reachable after the invocation.
+     */
+    void clear() {
+        Arrays.fill(this.refs, null);
+    }
+
+    /**
+     * Adapt {@code executor} to take its arguments out of a frame. Each primitive argument is
+     * read from its slot's bits and each reference argument is read from the slot's reference
+     * and cast to the parameter type.
+     *
+     * @param executor the handle to adapt, it may return anything
+     *
+     * @return a handle of type {@code (ArgumentFrame)void}
+     */
+    static MethodHandle spread(MethodHandle executor) {
+        MethodType type = executor.type();
+        MethodHandle[] readers = new MethodHandle[type.parameterCount()];
+        for (int i = 0; i < readers.length; i++)
+            readers[i] = reader(i, type.parameterType(i));
+
+        MethodHandle target = executor.asFixedArity().asType(type.changeReturnType(void.class));
+        return MethodHandles.permuteArguments(
+                MethodHandles.filterArguments(target, 0, readers),
+                MethodType.methodType(void.class, ArgumentFrame.class),
+                new int[readers.length]);
+    }
+
+    // A handle of type (ArgumentFrame)type that reads the slot
+    private static MethodHandle reader(int slot, Class<?> type) {
+        if (!type.isPrimitive())
+            return MethodHandles.insertArguments(GET_REF, 1, slot)
+                    .asType(MethodType.methodType(type, ArgumentFrame.class));
+
+        MethodHandle bits = MethodHandles.insertArguments(GET_BITS, 1, slot);
+        if (type == double.class)
+            return MethodHandles.filterReturnValue(bits, LONG_BITS_TO_DOUBLE);
+        if (type == float.class)
+            return MethodHandles.filterReturnValue(
+                    MethodHandles.explicitCastArguments(bits, MethodType.methodType(int.class, ArgumentFrame.class)),
+                    INT_BITS_TO_FLOAT);
+        // Narrows the bits, a boolean tests the lowest bit
+        return MethodHandles.explicitCastArguments(bits, MethodType.methodType(type, ArgumentFrame.class));
+    }
+}
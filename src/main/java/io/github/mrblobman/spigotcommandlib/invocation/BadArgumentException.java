@@ -2,11 +2,15 @@ package io.github.mrblobman.spigotcommandlib.invocation;
 
 import io.github.mrblobman.spigotcommandlib.args.CommandParameter;
 
+/**
+ * Thrown when an argument cannot be parsed for its parameter.
+ */
 public class BadArgumentException extends CommandInvocationException {
     private final CommandParameter<?> param;
     private final String rawArg;
 
     public BadArgumentException(CommandParameter<?> param, String rawArg) {
+        super(null, null, false, false);
         this.param = param;
         this.rawArg = rawArg;
     }
@@ -2,11 +2,15 @@ package io.github.mrblobman.spigotcommandlib.invocation;
 
 import org.bukkit.command.CommandSender;
 
+/**
+ * Thrown when the sender is not of the type the handler requires.
+ */
 public class BadCommandSenderException extends CommandInvocationException {
     private final Class<?> expectedType;
     private final CommandSender actual;
 
     public BadCommandSenderException(Class<?> expectedType, CommandSender actual) {
+        super(null, null, false, false);
         this.expectedType = expectedType;
         this.actual = actual;
     }
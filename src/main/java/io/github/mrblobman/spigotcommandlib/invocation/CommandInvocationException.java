@@ -15,4 +15,13 @@ public class CommandInvocationException extends Exception {
     public CommandInvocationException(Throwable cause) {
         super(cause);
     }
+
+    /**
+     * For exceptions caused by bad input from the sender. These are thrown for every typo a
+     * player makes so subclasses usually disable the stack trace, it says nothing about the
+     * sender's mistake and is the expensive part of creating the exception.
+     */
+    protected CommandInvocationException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
 }
@@ -1,38 +1,31 @@
 package io.github.mrblobman.spigotcommandlib.invocation;
 
+import io.github.mrblobman.spigotcommandlib.args.ArgumentFormatter;
 import io.github.mrblobman.spigotcommandlib.args.CommandParameter;
 import io.github.mrblobman.spigotcommandlib.args.CommandParameters;
-import io.github.mrblobman.spigotcommandlib.args.ParseException;
 import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
 
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 public class CommandMethodHandle {
-    private static final Map<Class<?>, Object> PRIMITIVE_DEFAULTS = new HashMap<>(8);
-
-    static {
-        PRIMITIVE_DEFAULTS.put(boolean.class, false);
-        PRIMITIVE_DEFAULTS.put(char.class, '\0');
-        PRIMITIVE_DEFAULTS.put(byte.class, (byte) 0);
-        PRIMITIVE_DEFAULTS.put(short.class, (short) 0);
-        PRIMITIVE_DEFAULTS.put(int.class, 0);
-        PRIMITIVE_DEFAULTS.put(long.class, 0L);
-        PRIMITIVE_DEFAULTS.put(float.class, 0f);
-        PRIMITIVE_DEFAULTS.put(double.class, 0d);
-    }
-
     private final Class<?> senderType;
     private final CommandParameters parameters;
     private final List<String> desc;
     private final MethodHandle executor;
 
+    private final HandlerInvoker invoker;
+    private final int arity;
+    // The slots holding primitive arguments, these are parsed straight into the frame's bits
+    private final boolean[] primitiveSlots;
+    // The element type of the vararg array, primitive elements are stored without boxing
+    private final Class<?> varargType;
+    // Each thread reuses one frame sized for this handle, see #acquireFrame()
+    private final ThreadLocal<ArgumentFrame> frames;
+
     /**
      * Construct a new command handle. This is a wrapper around a method handle that parses
      * the arguments from strings.
@@ -44,10 +37,45 @@ public class CommandMethodHandle {
      *                   arguments. See {@link CommandMethodHandle#invoke(CommandSender, List, List)}.
      */
     public CommandMethodHandle(Class<?> senderType, CommandParameters parameters, List<String> desc, MethodHandle executor) {
+        this(senderType, parameters, desc, executor, HandlerInvoker.ofMethodHandle(executor));
+    }
+
+    /**
+     * Construct a new command handle that calls into the method through {@code invoker}.
+     *
+     * @param senderType the required type of the sender
+     * @param parameters the command parameters
+     * @param desc       the command description
+     * @param executor   the method executor
+     * @param invoker    the invoker calling the same method as the {@code executor}
+     *
+     * @see InvokerBackend
+     */
+    public CommandMethodHandle(Class<?> senderType, CommandParameters parameters, List<String> desc, MethodHandle executor, HandlerInvoker invoker) {
         this.senderType = senderType;
         this.parameters = parameters;
         this.desc = desc;
         this.executor = executor;
+        this.invoker = invoker;
+        this.arity = executor.type().parameterCount();
+        this.frames = ThreadLocal.withInitial(() -> new ArgumentFrame(this.arity));
+
+        this.primitiveSlots = new boolean[this.arity];
+        int slot = this.arity - parameters.getRequiredParams().size() - parameters.getOptionalParams().size() - (parameters.hasVararg() ? 1 : 0);
+        for (CommandParameter<?> param : parameters) {
+            if (executor.type().parameterType(slot).isPrimitive()) {
+                if (!(param.getFormatter() instanceof ArgumentFormatter.OfPrimitive))
+                    throw new IllegalArgumentException("Primitive parameter " + param.getName() + " requires a primitive formatter.");
+                this.primitiveSlots[slot] = true;
+            }
+            slot++;
+        }
+
+        this.varargType = parameters.hasVararg()
+                ? executor.type().parameterType(this.arity - 1).getComponentType()
+                : null;
+        if (this.varargType != null && this.varargType.isPrimitive() && !(parameters.getVarargParam().getFormatter() instanceof ArgumentFormatter.OfPrimitive))
+            throw new IllegalArgumentException("Primitive vararg parameter " + parameters.getVarargParam().getName() + " requires a primitive formatter.");
     }
 
     public Class<?> getSenderType() {
@@ -83,46 +111,98 @@ public class CommandMethodHandle {
      * @throws CommandInvocationException if a error occurred while invoking the command or parsing the arguments.
      */
     public void invoke(CommandSender sender, List<String> rawArgs, List<?> implicit) throws CommandInvocationException {
+        ArgumentFrame args = this.acquireFrame();
+        try {
+            for (int i = 0; i < implicit.size(); i++)
+                args.setRef(i, implicit.get(i));
+            this.invoke(args, implicit.size(), sender, rawArgs.toArray(new String[rawArgs.size()]), 0);
+        } finally {
+            this.releaseFrame(args);
+        }
+    }
+
+    /**
+     * Invoke the underlying method handle without any implicit arguments. The arguments are read
+     * straight out of the {@code command} so nothing is copied.
+     *
+     * @param sender   the entity that is invoking the command
+     * @param command  the command the {@code sender} executed
+     * @param argStart the index of the first argument in {@code command}
+     *
+     * @throws CommandInvocationException if a error occurred while invoking the command or parsing the arguments.
+     * @see #invoke(CommandSender, List, List)
+     */
+    public void invoke(CommandSender sender, String[] command, int argStart) throws CommandInvocationException {
+        ArgumentFrame args = this.acquireFrame();
+        try {
+            this.invoke(args, 0, sender, command, argStart);
+        } finally {
+            this.releaseFrame(args);
+        }
+    }
+
+    /**
+     * Invoke the underlying method handle with a single implicit argument.
+     *
+     * @param sender   the entity that is invoking the command
+     * @param command  the command the {@code sender} executed
+     * @param argStart the index of the first argument in {@code command}
+     * @param implicit the implicit argument
+     *
+     * @throws CommandInvocationException if a error occurred while invoking the command or parsing the arguments.
+     * @see #invoke(CommandSender, List, List)
+     */
+    public void invoke(CommandSender sender, String[] command, int argStart, Object implicit) throws CommandInvocationException {
+        ArgumentFrame args = this.acquireFrame();
+        try {
+            args.setRef(0, implicit);
+            this.invoke(args, 1, sender, command, argStart);
+        } finally {
+            this.releaseFrame(args);
+        }
+    }
+
+    private void invoke(ArgumentFrame args, int argIdx, CommandSender sender, String[] command, int argStart) throws CommandInvocationException {
         if (!this.senderType.isInstance(sender))
             throw new BadCommandSenderException(this.senderType, sender);
 
-        List<Object> given = this.compileArgs(rawArgs);
-
-        List<Object> args = new ArrayList<>(implicit.size() + 1 + given.size());
+        args.setRef(argIdx++, sender);
 
-        args.addAll(implicit);
-        args.add(sender);
-        args.addAll(given);
+        this.compileArgs(command, argStart, args, argIdx);
 
         try {
-            this.executor.invokeWithArguments(args);
+            this.invoker.invoke(args);
         } catch (Throwable throwable) {
             throw new CommandInvocationException(throwable);
         }
     }
 
-    private List<Object> compileArgs(List<String> rawArgs) throws CommandInvocationException {
-        List<Object> args = new ArrayList<>();
+    // The thread's frame, unless the thread is already using it further up the stack
+    private ArgumentFrame acquireFrame() {
+        ArgumentFrame args = this.frames.get();
+        if (args.inUse)
+            args = new ArgumentFrame(this.arity);
+        args.inUse = true;
+        return args;
+    }
+
+    private void releaseFrame(ArgumentFrame args) {
+        // Don't keep the arguments reachable after the invocation
+        args.clear();
+        args.inUse = false;
+    }
 
+    private void compileArgs(String[] command, int argStart, ArgumentFrame args, int argIdx) throws CommandInvocationException {
         List<CommandParameter<?>> requiredParams = this.parameters.getRequiredParams();
+        int argCount = Math.max(0, command.length - argStart);
 
-        if (rawArgs.size() < requiredParams.size())
-            throw new ArgumentCountException(rawArgs.size(), requiredParams.size());
+        if (argCount < requiredParams.size())
+            throw new ArgumentCountException(argCount, requiredParams.size());
 
         int rawArgIndex = 0;
         // There are at least enough rawArgs to fill the requireParams
         for (; rawArgIndex < requiredParams.size(); rawArgIndex++) {
-            String rawArg = rawArgs.get(rawArgIndex);
-            CommandParameter<?> cmdParam = requiredParams.get(rawArgIndex);
-
-            Object arg;
-            try {
-                arg = cmdParam.getFormatter().parse(rawArg);
-            } catch (ParseException e) {
-                throw new BadArgumentException(cmdParam, rawArg);
-            }
-
-            args.add(arg);
+            this.parseArg(requiredParams.get(rawArgIndex), command[argStart + rawArgIndex], args, argIdx++);
         }
 
         List<CommandParameter<?>> optionalParams = this.parameters.getOptionalParams();
@@ -130,44 +210,80 @@ public class CommandMethodHandle {
         for (; rawArgIndex < requiredParams.size() + optionalParams.size(); rawArgIndex++) {
             CommandParameter<?> cmdParam = optionalParams.get(rawArgIndex - requiredParams.size());
 
-            if (rawArgIndex < rawArgs.size()) {
+            if (rawArgIndex < argCount) {
                 // The optional arg is present
-                String rawArg = rawArgs.get(rawArgIndex);
-                Object arg;
-                try {
-                    arg = cmdParam.getFormatter().parse(rawArg);
-                } catch (ParseException e) {
-                    throw new BadArgumentException(cmdParam, rawArg);
-                }
-
-                args.add(arg);
+                this.parseArg(cmdParam, command[argStart + rawArgIndex], args, argIdx++);
+            } else if (this.primitiveSlots[argIdx]) {
+                // Provide the default, all zero bits is 0, 0.0 or false
+                args.setBits(argIdx++, 0);
             } else {
-                // Provide the default
-                args.add(PRIMITIVE_DEFAULTS.getOrDefault(cmdParam.getArgumentType(), null));
+                args.setRef(argIdx++, null);
             }
         }
 
         if (this.parameters.hasVararg()) {
             CommandParameter<?> varargParam = this.parameters.getVarargParam();
 
-            List<Object> vararg = new ArrayList<>(Math.max(0, rawArgs.size() - rawArgIndex));
-            for (; rawArgIndex < rawArgs.size(); rawArgIndex++) {
-                String rawArg = rawArgs.get(rawArgIndex);
-                Object arg;
-                try {
-                    arg = varargParam.getFormatter().parse(rawArg);
-                } catch (ParseException e) {
-                    throw new BadArgumentException(varargParam, rawArg);
-                }
+            args.setRef(argIdx, this.parseVararg(varargParam, command, argStart + rawArgIndex, args, argIdx));
+        } else if (rawArgIndex < argCount) {
+            throw new ArgumentCountException(argCount, requiredParams.size() + optionalParams.size());
+        }
+    }
 
-                vararg.add(arg);
+    private Object parseVararg(CommandParameter<?> varargParam, String[] command, int from, ArgumentFrame args, int argIdx) throws BadArgumentException {
+        // Sized once from the remaining arguments
+        int count = Math.max(0, command.length - from);
+
+        if (!this.varargType.isPrimitive()) {
+            Object[] vararg = (Object[]) Array.newInstance(this.varargType, count);
+            for (int i = 0; i < count; i++) {
+                String rawArg = command[from + i];
+                if ((vararg[i] = varargParam.getFormatter().tryParse(rawArg)) == null)
+                    throw new BadArgumentException(varargParam, rawArg);
             }
+            return vararg;
+        }
 
-            args.add(vararg.toArray((Object[]) Array.newInstance(varargParam.getFormatter().getParseType(), vararg.size())));
-        } else if (rawArgIndex < rawArgs.size()) {
-            throw new ArgumentCountException(rawArgs.size(), requiredParams.size() + optionalParams.size());
+        ArgumentFormatter.OfPrimitive<?> formatter = (ArgumentFormatter.OfPrimitive<?>) varargParam.getFormatter();
+        Object vararg = Array.newInstance(this.varargType, count);
+        for (int i = 0; i < count; i++) {
+            String rawArg = command[from + i];
+            // The vararg's slot is free to parse into until the array is stored in it
+            if (!args.parseBits(argIdx, formatter, rawArg))
+                throw new BadArgumentException(varargParam, rawArg);
+            storeBits(vararg, i, args.getBits(argIdx));
         }
+        return vararg;
+    }
 
-        return args;
+    private static void storeBits(Object array, int index, long bits) {
+        if (array instanceof int[])
+            ((int[]) array)[index] = (int) bits;
+        else if (array instanceof double[])
+            ((double[]) array)[index] = Double.longBitsToDouble(bits);
+        else if (array instanceof long[])
+            ((long[]) array)[index] = bits;
+        else if (array instanceof float[])
+            ((float[]) array)[index] = Float.intBitsToFloat((int) bits);
+        else if (array instanceof short[])
+            ((short[]) array)[index] = (short) bits;
+        else if (array instanceof boolean[])
+            ((boolean[]) array)[index] = bits != 0;
+        else
+            throw new IllegalArgumentException("Unsupported primitive array " + array.getClass().getSimpleName());
+    }
+
+    private void parseArg(CommandParameter<?> cmdParam, String rawArg, ArgumentFrame args, int argIdx) throws BadArgumentException {
+        boolean parsed;
+        if (this.primitiveSlots[argIdx]) {
+            parsed = args.parseBits(argIdx, (ArgumentFormatter.OfPrimitive<?>) cmdParam.getFormatter(), rawArg);
+        } else {
+            Object arg = cmdParam.getFormatter().tryParse(rawArg);
+            args.setRef(argIdx, arg);
+            parsed = arg != null;
+        }
+
+        if (!parsed)
+            throw new BadArgumentException(cmdParam, rawArg);
     }
 }
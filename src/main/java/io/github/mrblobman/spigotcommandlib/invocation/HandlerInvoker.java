@@ -0,0 +1,35 @@
+package io.github.mrblobman.spigotcommandlib.invocation;
+
+import java.lang.invoke.MethodHandle;
+
+/**
+ * The call into a handler method once all of its arguments are known.
+ */
+@FunctionalInterface
+public interface HandlerInvoker {
+    /**
+     * Invoke the handler method.
+     *
+     * @param args the arguments in the order the method declares them. The frame
+     *             is only valid for the duration of the call.
+     *
+     * @throws Throwable anything thrown by the handler method
+     */
+    void invoke(ArgumentFrame args) throws Throwable;
+
+    /**
+     * Create an invoker that calls {@code executor} with the arguments spread out of the
+     * frame.
+     *
+     * @param executor the handle to invoke, it may return anything
+     *
+     * @return the invoker
+     */
+    static HandlerInvoker ofMethodHandle(MethodHandle executor) {
+        MethodHandle spreadExecutor = ArgumentFrame.spread(executor);
+        // A statement body so that the call site is typed (ArgumentFrame)void
+        return args -> {
+            spreadExecutor.invokeExact(args);
+        };
+    }
+}
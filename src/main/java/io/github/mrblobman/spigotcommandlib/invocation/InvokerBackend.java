@@ -0,0 +1,45 @@
+package io.github.mrblobman.spigotcommandlib.invocation;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+
+/**
+ * The strategies available for calling handler methods.
+ */
+public enum InvokerBackend {
+    /**
+     * Invoke handlers through a spread, exact typed {@link MethodHandle}.
+     */
+    METHOD_HANDLE {
+        @Override
+        public HandlerInvoker compile(Object handler, Method method, MethodHandle executor) {
+            return HandlerInvoker.ofMethodHandle(executor);
+        }
+    },
+    /**
+     * Invoke handlers through a class generated for each method by the
+     * {@link java.lang.invoke.LambdaMetafactory LambdaMetafactory} that calls the
+     * method directly, the same way a hand written invoker would.
+     * <p>
+     * Only public methods of public classes with a few parameters, none of them primitive, can
+     * be called this way. Any other method falls back to {@link #METHOD_HANDLE}.
+     */
+    LAMBDA_METAFACTORY {
+        @Override
+        public HandlerInvoker compile(Object handler, Method method, MethodHandle executor) {
+            HandlerInvoker invoker = LambdaInvokers.compile(handler, method);
+            return invoker != null ? invoker : METHOD_HANDLE.compile(handler, method, executor);
+        }
+    };
+
+    /**
+     * Create the invoker for a handler method.
+     *
+     * @param handler  the instance declaring the method
+     * @param method   the handler method
+     * @param executor the method unreflected and bound to the {@code handler}
+     *
+     * @return the invoker
+     */
+    public abstract HandlerInvoker compile(Object handler, Method method, MethodHandle executor);
+}
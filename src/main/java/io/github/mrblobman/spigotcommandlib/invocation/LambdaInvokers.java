@@ -0,0 +1,172 @@
+package io.github.mrblobman.spigotcommandlib.invocation;
+
+import java.lang.invoke.*;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Generates a {@link HandlerInvoker} per handler method with the {@link LambdaMetafactory}.
+ * The generated class implements one of the fixed arity interfaces below by calling the
+ * handler method directly with a plain {@code invokevirtual}, casting each argument on
+ * the way.
+ */
+final class LambdaInvokers {
+    private static final Logger LOGGER = Logger.getLogger(LambdaInvokers.class.getName());
+    private static final Class<?>[] ARITIES = {
+            null, Arity1.class, Arity2.class, Arity3.class, Arity4.class,
+            Arity5.class, Arity6.class, Arity7.class, Arity8.class
+    };
+
+    private LambdaInvokers() {}
+
+    /**
+     * Generate an invoker for {@code method} bound to {@code handler}.
+     *
+     * @param handler the instance declaring the method
+     * @param method  the handler method
+     *
+     * @return the invoker or null if the method cannot be called by a generated class
+     */
+    static HandlerInvoker compile(Object handler, Method method) {
+        int arity = method.getParameterCount();
+        if (arity < 1 || arity >= ARITIES.length || !isLinkable(method)) {
+            LOGGER.log(Level.FINE, "Calling " + describe(method) + " through a method handle, it cannot be called by a generated class.");
+            return null;
+        }
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        CallSite site;
+        try {
+            MethodHandle impl = lookup.unreflect(method);
+            site = LambdaMetafactory.metafactory(lookup, "call",
+                    MethodType.methodType(ARITIES[arity], method.getDeclaringClass()),
+                    MethodType.genericMethodType(arity).changeReturnType(void.class),
+                    impl,
+                    MethodType.methodType(void.class, method.getParameterTypes()));
+        } catch (IllegalAccessException | LambdaConversionException e) {
+            LOGGER.log(Level.WARNING, "Calling " + describe(method) + " through a method handle, generating its invoker failed.", e);
+            return null;
+        }
+
+        try {
+            return (HandlerInvoker) site.getTarget().invoke(handler);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            // The factory only allocates the invoker, it has nothing checked to throw
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String describe(Method method) {
+        return method.getDeclaringClass().getName() + "#" + method.getName();
+    }
+
+    // The generated class is defined next to this one so everything it calls must be
+    // public and resolve to the same classes from here.
+    private static boolean isLinkable(Method method) {
+        if (Modifier.isStatic(method.getModifiers()) || !Modifier.isPublic(method.getModifiers()))
+            return false;
+
+        if (!isVisible(method.getDeclaringClass()) || !isVisible(method.getReturnType()))
+            return false;
+        for (Class<?> type : method.getParameterTypes())
+            // Primitive arguments would have to be boxed to pass through the generic interfaces
+            if (type.isPrimitive() || !isVisible(type))
+                return false;
+
+        return true;
+    }
+
+    // Public, as are the classes it is nested in, and loaded by the same loader from here
+    private static boolean isVisible(Class<?> type) {
+        while (type.isArray())
+            type = type.getComponentType();
+        if (type.isPrimitive())
+            return true;
+
+        for (Class<?> c = type; c != null; c = c.getEnclosingClass())
+            if (!Modifier.isPublic(c.getModifiers()))
+                return false;
+
+        try {
+            return Class.forName(type.getName(), false, LambdaInvokers.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    interface Arity1 extends HandlerInvoker {
+        void call(Object a0) throws Throwable;
+
+        @Override
+        default void invoke(ArgumentFrame a) throws Throwable {
+            call(a.getRef(0));
+        }
+    }
+
+    interface Arity2 extends HandlerInvoker {
+        void call(Object a0, Object a1) throws Throwable;
+
+        @Override
+        default void invoke(ArgumentFrame a) throws Throwable {
+            call(a.getRef(0), a.getRef(1));
+        }
+    }
+
+    interface Arity3 extends HandlerInvoker {
+        void call(Object a0, Object a1, Object a2) throws Throwable;
+
+        @Override
+        default void invoke(ArgumentFrame a) throws Throwable {
+            call(a.getRef(0), a.getRef(1), a.getRef(2));
+        }
+    }
+
+    interface Arity4 extends HandlerInvoker {
+        void call(Object a0, Object a1, Object a2, Object a3) throws Throwable;
+
+        @Override
+        default void invoke(ArgumentFrame a) throws Throwable {
+            call(a.getRef(0), a.getRef(1), a.getRef(2), a.getRef(3));
+        }
+    }
+
+    interface Arity5 extends HandlerInvoker {
+        void call(Object a0, Object a1, Object a2, Object a3, Object a4) throws Throwable;
+
+        @Override
+        default void invoke(ArgumentFrame a) throws Throwable {
+            call(a.getRef(0), a.getRef(1), a.getRef(2), a.getRef(3), a.getRef(4));
+        }
+    }
+
+    interface Arity6 extends HandlerInvoker {
+        void call(Object a0, Object a1, Object a2, Object a3, Object a4, Object a5) throws Throwable;
+
+        @Override
+        default void invoke(ArgumentFrame a) throws Throwable {
+            call(a.getRef(0), a.getRef(1), a.getRef(2), a.getRef(3), a.getRef(4), a.getRef(5));
+        }
+    }
+
+    interface Arity7 extends HandlerInvoker {
+        void call(Object a0, Object a1, Object a2, Object a3, Object a4, Object a5, Object a6) throws Throwable;
+
+        @Override
+        default void invoke(ArgumentFrame a) throws Throwable {
+            call(a.getRef(0), a.getRef(1), a.getRef(2), a.getRef(3), a.getRef(4), a.getRef(5), a.getRef(6));
+        }
+    }
+
+    interface Arity8 extends HandlerInvoker {
+        void call(Object a0, Object a1, Object a2, Object a3, Object a4, Object a5, Object a6, Object a7) throws Throwable;
+
+        @Override
+        default void invoke(ArgumentFrame a) throws Throwable {
+            call(a.getRef(0), a.getRef(1), a.getRef(2), a.getRef(3), a.getRef(4), a.getRef(5), a.getRef(6), a.getRef(7));
+        }
+    }
+}
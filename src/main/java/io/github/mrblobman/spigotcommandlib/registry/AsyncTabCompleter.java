@@ -0,0 +1,118 @@
+package io.github.mrblobman.spigotcommandlib.registry;
+
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Answers tab completions for a {@link CommandLib} off the main thread from Paper's
+ * {@code AsyncTabCompleteEvent}. The event is not part of the Bukkit API so it is bound
+ * reflectively. On servers without it completions stay on the main thread in
+ * {@link BukkitInterceptorCommand#tabComplete(CommandSender, String, String[])}.
+ */
+public class AsyncTabCompleter implements Listener {
+    private static final String EVENT_CLASS = "com.destroystokyo.paper.event.server.AsyncTabCompleteEvent";
+
+    // All null if the server does not have the event
+    private static final Class<? extends Event> EVENT;
+    private static final MethodHandle GET_SENDER;
+    private static final MethodHandle GET_BUFFER;
+    private static final MethodHandle IS_HANDLED;
+    private static final MethodHandle SET_HANDLED;
+    private static final MethodHandle SET_COMPLETIONS;
+    // Only newer versions can tell commands apart from chat, this is null otherwise
+    private static final MethodHandle IS_COMMAND;
+
+    static {
+        Class<? extends Event> event = null;
+        MethodHandle getSender = null, getBuffer = null, isHandled = null, setHandled = null, setCompletions = null, isCommand = null;
+        try {
+            event = Class.forName(EVENT_CLASS).asSubclass(Event.class);
+
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            getSender = bind(lookup, event, "getSender", MethodType.methodType(CommandSender.class));
+            getBuffer = bind(lookup, event, "getBuffer", MethodType.methodType(String.class));
+            isHandled = bind(lookup, event, "isHandled", MethodType.methodType(boolean.class));
+            setHandled = bind(lookup, event, "setHandled", MethodType.methodType(void.class, boolean.class));
+            setCompletions = bind(lookup, event, "setCompletions", MethodType.methodType(void.class, List.class));
+            try {
+                isCommand = bind(lookup, event, "isCommand", MethodType.methodType(boolean.class));
+            } catch (NoSuchMethodException ignored) {}
+        } catch (ClassNotFoundException | ClassCastException | NoSuchMethodException | IllegalAccessException e) {
+            event = null;
+        }
+
+        EVENT = event;
+        GET_SENDER = getSender;
+        GET_BUFFER = getBuffer;
+        IS_HANDLED = isHandled;
+        SET_HANDLED = setHandled;
+        SET_COMPLETIONS = setCompletions;
+        IS_COMMAND = isCommand;
+    }
+
+    // A handle to the event method that takes the event as an Event
+    private static MethodHandle bind(MethodHandles.Lookup lookup, Class<?> event, String name, MethodType type) throws NoSuchMethodException, IllegalAccessException {
+        return lookup.findVirtual(event, name, type)
+                .asType(type.insertParameterTypes(0, Event.class));
+    }
+
+    /**
+     * @return true iff the server fires an async tab complete event
+     */
+    static boolean isSupported() {
+        return EVENT != null;
+    }
+
+    private final CommandLib lib;
+    private volatile boolean enabled;
+
+    AsyncTabCompleter(CommandLib lib) {
+        this.lib = lib;
+        if (isSupported())
+            Bukkit.getPluginManager().registerEvent(EVENT, this, EventPriority.NORMAL, (listener, event) -> {
+                if (EVENT.isInstance(event))
+                    this.onTabComplete(event);
+            }, lib.getHook(), true);
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled && isSupported();
+    }
+
+    private void onTabComplete(Event event) throws EventException {
+        if (!this.enabled)
+            return;
+
+        try {
+            if ((boolean) IS_HANDLED.invokeExact(event) || (IS_COMMAND != null && !(boolean) IS_COMMAND.invokeExact(event)))
+                return;
+
+            CommandSender sender = (CommandSender) GET_SENDER.invokeExact(event);
+            String buffer = (String) GET_BUFFER.invokeExact(event);
+
+            List<String> completions = this.lib.tabComplete(sender, buffer);
+            // Leave nothing to Bukkit, it falls back to player names on the main thread
+            if (completions.isEmpty())
+                return;
+
+            SET_COMPLETIONS.invokeExact(event, (List) new ArrayList<>(completions));
+            SET_HANDLED.invokeExact(event, true);
+        } catch (Throwable e) {
+            throw new EventException(e);
+        }
+    }
+}
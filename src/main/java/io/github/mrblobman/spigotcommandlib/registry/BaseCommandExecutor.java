@@ -15,10 +15,15 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class BaseCommandExecutor implements CommandExecutor {
     private final SubCommand command;
+    // The usage and description messages for each handle, these only change with the command tree
+    private final Map<CommandMethodHandle, RenderedHandle> rendered = new ConcurrentHashMap<>();
 
     public BaseCommandExecutor(SubCommand command) {
         this.command = command;
@@ -35,65 +40,64 @@ public abstract class BaseCommandExecutor implements CommandExecutor {
 
     @Override
     public boolean canExecute(CommandSender sender) {
-        return getTrigger().canBeExecutedBy(sender);
+        return getTrigger().canBeExecutedBy(sender) && this.canExecuteWithPermission(sender);
     }
 
-    protected void sendUsage(CommandSender sender, CommandMethodHandle handle) {
-        StringBuilder executableStr = new StringBuilder(this.command.toExecutableString());
+    @Override
+    public boolean canExecuteWithPermission(CommandSender sender) {
+        return true;
+    }
 
-        for (CommandParameter<?> param : handle.getParameters())
-            executableStr.append(" ").append(param.getDescriptiveName());
+    /**
+     * Suggest values for the last argument in {@code command} from the completions of the
+     * {@code handle}'s parameter at that position.
+     *
+     * @see CommandExecutor#complete(CommandSender, String[], int, int)
+     */
+    protected List<String> completeArgument(CommandSender sender, CommandMethodHandle handle, String[] command, int argStart, int limit) {
+        CommandParameter<?> param = handle.getParameters().getParameter(command.length - 1 - argStart);
+        return param == null
+                ? Collections.emptyList()
+                : param.getCompletions().complete(sender, command[command.length - 1], limit);
+    }
+
+    protected void sendUsage(CommandSender sender, CommandMethodHandle handle) {
+        RenderedHandle rendered = this.render(handle);
 
         if (!(sender instanceof Player)) {
-            sender.sendMessage(ChatColor.YELLOW + executableStr.toString());
+            sender.sendMessage(rendered.consoleUsage);
             return;
         }
 
-        ComponentBuilder message = new ComponentBuilder(this.command.toString());
-
-        message.color(ChatColor.RED);
-        message.event(new ClickEvent(ClickEvent.Action.SUGGEST_COMMAND, executableStr.toString()));
-        message.event(buildTooltip(ChatColor.YELLOW + this.command.toString(),
-                ChatColor.GRAY + "Click to paste this command's",
-                ChatColor.GRAY + "format in your chat box."));
-
-        for (CommandParameter<?> arg : handle.getParameters()) {
-            message.append(" " + arg.getDescriptiveName());
-            message.event(buildTooltip(arg.getDescription()));
-        }
-
-        ((Player) sender).spigot().sendMessage(message.create());
+        ((Player) sender).spigot().sendMessage(rendered.usage);
     }
 
     protected void sendDescription(CommandSender sender, CommandMethodHandle handle) {
-        sender.sendMessage(handle.getDescription().stream()
-                .map(s -> ChatColor.AQUA + s)
-                .toArray(String[]::new));
+        RenderedHandle rendered = this.render(handle);
 
-        StringBuilder executableStr = new StringBuilder(this.command.toExecutableString());
-
-        for (CommandParameter<?> param : handle.getParameters())
-            executableStr.append(" ").append(param.getDescriptiveName());
+        sender.sendMessage(rendered.description);
 
         if (!(sender instanceof Player)) {
-            sender.sendMessage(ChatColor.YELLOW + executableStr.toString());
+            sender.sendMessage(rendered.consoleUsage);
             return;
         }
 
-        ComponentBuilder message = new ComponentBuilder("    \u27A5" + this.command.toString());
-
-        message.color(ChatColor.RED);
-        message.event(new ClickEvent(ClickEvent.Action.SUGGEST_COMMAND, executableStr.toString()));
-        message.event(buildTooltip(ChatColor.YELLOW + this.command.toString(),
-                ChatColor.GRAY + "Click to paste this command's",
-                ChatColor.GRAY + "format in your chat box."));
+        ((Player) sender).spigot().sendMessage(rendered.descriptionUsage);
+    }
 
-        for (CommandParameter<?> arg : handle.getParameters()) {
-            message.append(" " + arg.getDescriptiveName());
-            message.event(buildTooltip(arg.getDescription()));
-        }
+    private RenderedHandle render(CommandMethodHandle handle) {
+        RenderedHandle rendered = this.rendered.get(handle);
+        if (rendered == null)
+            rendered = this.rendered.computeIfAbsent(handle, h -> new RenderedHandle(this.command, h));
+        return rendered;
+    }
 
-        ((Player) sender).spigot().sendMessage(message.create());
+    /**
+     * Drop the rendered usage and description messages so they are rendered again from the
+     * current command tree the next time they are sent.
+     */
+    void invalidateRendering() {
+        this.rendered.clear();
     }
 
     protected void sendBadCommandSender(CommandSender to, Class<?> expectedType, CommandSender actualSender) {
@@ -160,4 +164,46 @@ public abstract class BaseCommandExecutor implements CommandExecutor {
         }
         return new HoverEvent(HoverEvent.Action.SHOW_ITEM, new BaseComponent[]{ new TextComponent(item.toString()) });
     }
+
+    /**
+     * The messages sent for a handle, rendered once instead of for every bad argument or help line.
+     */
+    private static final class RenderedHandle {
+        private final String[] description;
+        private final String consoleUsage;
+        private final BaseComponent[] usage;
+        private final BaseComponent[] descriptionUsage;
+
+        RenderedHandle(SubCommand command, CommandMethodHandle handle) {
+            this.description = handle.getDescription().stream()
+                    .map(s -> ChatColor.AQUA + s)
+                    .toArray(String[]::new);
+
+            StringBuilder executableStr = new StringBuilder(command.toExecutableString());
+
+            for (CommandParameter<?> param : handle.getParameters())
+                executableStr.append(" ").append(param.getDescriptiveName());
+
+            this.consoleUsage = ChatColor.YELLOW + executableStr.toString();
+            this.usage = renderUsage(command.toString(), command, executableStr.toString(), handle);
+            this.descriptionUsage = renderUsage("    \u27A5" + command.toString(), command, executableStr.toString(), handle);
+        }
+
+        private static BaseComponent[] renderUsage(String prefix, SubCommand command, String executableStr, CommandMethodHandle handle) {
+            ComponentBuilder message = new ComponentBuilder(prefix);
+
+            message.color(ChatColor.RED);
+            message.event(new ClickEvent(ClickEvent.Action.SUGGEST_COMMAND, executableStr));
+            message.event(buildTooltip(ChatColor.YELLOW + command.toString(),
+                    ChatColor.GRAY + "Click to paste this command's",
+                    ChatColor.GRAY + "format in your chat box."));
+
+            for (CommandParameter<?> arg : handle.getParameters()) {
+                message.append(" " + arg.getDescriptiveName());
+                message.event(buildTooltip(arg.getDescription()));
+            }
+
+            return message.create();
+        }
+    }
 }
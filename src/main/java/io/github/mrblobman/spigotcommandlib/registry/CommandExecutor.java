@@ -2,6 +2,8 @@ package io.github.mrblobman.spigotcommandlib.registry;
 
 import org.bukkit.command.CommandSender;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 public interface CommandExecutor {
@@ -9,7 +11,49 @@ public interface CommandExecutor {
 
     public boolean canExecute(CommandSender sender);
 
+    /**
+     * Check if the {@code sender} can execute this command, given that they are already known to
+     * have permission to execute the {@link #getTrigger() trigger}.
+     *
+     * @param sender the sender executing the command
+     *
+     * @return true iff the sender can execute this command
+     */
+    public default boolean canExecuteWithPermission(CommandSender sender) {
+        return this.canExecute(sender);
+    }
+
     public void execute(CommandSender sender, List<String> args) throws Exception;
 
+    /**
+     * Execute with the arguments {@code command[argStart...]}. Implementations should override this
+     * to read the arguments in place rather than through a list.
+     *
+     * @param sender   the sender executing the command
+     * @param command  the full command including the sub commands leading to this executor
+     * @param argStart the index of the first argument in {@code command}
+     *
+     * @throws Exception if the execution fails
+     */
+    public default void execute(CommandSender sender, String[] command, int argStart) throws Exception {
+        this.execute(sender, argStart < command.length
+                ? Arrays.asList(command).subList(argStart, command.length)
+                : Collections.emptyList());
+    }
+
+    /**
+     * Suggest values for the last argument in {@code command} while it is being typed.
+     *
+     * @param sender   the sender typing the command
+     * @param command  the full command including the sub commands leading to this executor
+     * @param argStart the index of the first argument in {@code command}
+     * @param limit    the maximum number of suggestions. See: {@link CommandLib#NO_LIMIT}
+     *
+     * @return the suggestions for the last argument
+     */
+    public default List<String> complete(CommandSender sender, String[] command, int argStart, int limit) {
+        return Collections.emptyList();
+    }
+
     public void sendDescription(CommandSender sender);
 }
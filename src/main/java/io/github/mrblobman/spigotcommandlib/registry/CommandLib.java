@@ -25,17 +25,37 @@ package io.github.mrblobman.spigotcommandlib.registry;
 
 import io.github.mrblobman.spigotcommandlib.*;
 import io.github.mrblobman.spigotcommandlib.invocation.CommandMethodHandle;
+import io.github.mrblobman.spigotcommandlib.invocation.InvokerBackend;
+import net.md_5.bungee.api.ChatColor;
 import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 
 public class CommandLib {
     public static final String NO_PERMISSION = "";
     public static final int NO_TIMEOUT = 0;
+    public static final int NO_LIMIT = 0;
 
     private CommandRegistry registry;
     private Plugin hook;
+    private int maxCommandLength = NO_LIMIT;
+    private int maxCommandParts = NO_LIMIT;
+    private RawCommandInterceptor rawCommandInterceptor;
+    private PermissionCache permissionCache;
+    private AsyncTabCompleter asyncTabCompleter;
+    private CompletionCache completionCache;
+    private InvokerBackend invokerBackend = InvokerBackend.METHOD_HANDLE;
+    private int helpPageSize = NO_LIMIT;
+    private int maxCompletions = 100;
+    private boolean serializeFragments = false;
 
     public CommandLib(Plugin hook) throws IllegalStateException {
         this.hook = hook;
@@ -92,7 +112,7 @@ public class CommandLib {
      *
      * @param handler    the command handler
      * @param permission the permission required to execute the command. See: {@link #NO_PERMISSION}
-     * @param timeout    the time to keep any context instances loaded. See: {@link #NO_TIMEOUT}
+     * @param timeout    the time in milliseconds to keep an unused context loaded. See: {@link #NO_TIMEOUT}
      * @param supplier   a supplier to generate new context's when needed
      * @param cmdPrefix  the sub required in addition to the sub command for the handle
      * @param <T>        the type of the context
@@ -110,7 +130,7 @@ public class CommandLib {
      *
      * @param handler    the command handler
      * @param permission the permission required to execute the command. See: {@link #NO_PERMISSION}
-     * @param timeout    the time to keep any context instances loaded.. See: {@link #NO_TIMEOUT}
+     * @param timeout    the time in milliseconds to keep an unused context loaded. See: {@link #NO_TIMEOUT}
      * @param cmdPrefix  the sub required in addition to the sub command for the handle
      *
      * @see FragmentedCommandHandle
@@ -119,6 +139,280 @@ public class CommandLib {
         registry.register(handler, permission, timeout, FragmentExecutionContext::new, cmdPrefix);
     }
 
+    /**
+     * Set the maximum length of a command, including the label and the spaces between
+     * arguments. Longer commands are rejected before they are split into arguments or
+     * completed.
+     *
+     * @param maxCommandLength the maximum length. See: {@link #NO_LIMIT}
+     */
+    public void setMaxCommandLength(int maxCommandLength) {
+        this.maxCommandLength = Math.max(NO_LIMIT, maxCommandLength);
+    }
+
+    public int getMaxCommandLength() {
+        return this.maxCommandLength;
+    }
+
+    /**
+     * Set the maximum number of whitespace separated parts in a command, including the
+     * label. This is counted before quoted arguments are joined so {@code /msg "a b"} has
+     * 3 parts. Commands with more parts are rejected before they are split into arguments
+     * or completed.
+     *
+     * @param maxCommandParts the maximum number of parts. See: {@link #NO_LIMIT}
+     */
+    public void setMaxCommandParts(int maxCommandParts) {
+        this.maxCommandParts = Math.max(NO_LIMIT, maxCommandParts);
+    }
+
+    public int getMaxCommandParts() {
+        return this.maxCommandParts;
+    }
+
+    /**
+     * Handle commands registered with this lib straight from the raw message in the
+     * {@link org.bukkit.event.player.PlayerCommandPreprocessEvent PlayerCommandPreprocessEvent}
+     * instead of waiting for Bukkit to split the message and look it up in the command map.
+     * This also keeps all whitespace inside of quoted arguments.
+     * <p>
+     * Only commands sent by players are affected, the console still goes through the command
+     * map. Intercepted events are cancelled so other plugins should not expect to see them in
+     * {@link org.bukkit.event.EventPriority#MONITOR MONITOR} handlers.
+     *
+     * @param intercept true to intercept raw commands, false to leave them to Bukkit
+     */
+    public void setInterceptRawCommands(boolean intercept) {
+        if (this.rawCommandInterceptor == null) {
+            if (!intercept) return;
+            this.rawCommandInterceptor = new RawCommandInterceptor(this);
+        }
+        this.rawCommandInterceptor.setEnabled(intercept);
+    }
+
+    public boolean isInterceptingRawCommands() {
+        return this.rawCommandInterceptor != null && this.rawCommandInterceptor.isEnabled();
+    }
+
+    /**
+     * Remember which commands each player may execute rather than checking every permission
+     * of a command and its super commands whenever it is dispatched, described in help or
+     * tab completed. The commands are computed when a player joins or changes world.
+     * <p>
+     * Any other change to a player's permissions must be reported with
+     * {@link #invalidatePermissions(Player)} for it to be seen by this lib.
+     *
+     * @param cache true to cache the commands players may execute, false to check permissions every time
+     */
+    public void setCachePermissions(boolean cache) {
+        if (this.permissionCache == null) {
+            if (!cache) return;
+            this.permissionCache = new PermissionCache(this);
+        }
+        this.permissionCache.setEnabled(cache);
+    }
+
+    public boolean isCachingPermissions() {
+        return this.permissionCache != null && this.permissionCache.isEnabled();
+    }
+
+    /**
+     * Recompute the commands the {@code player} may execute after their permissions changed.
+     * This does nothing unless permissions are cached.
+     *
+     * @param player the player whose permissions changed
+     *
+     * @see #setCachePermissions(boolean)
+     */
+    public void invalidatePermissions(Player player) {
+        if (this.permissionCache != null)
+            this.permissionCache.invalidate(player.getUniqueId());
+    }
+
+    /**
+     * Recompute the commands every player may execute, for example after a permission
+     * plugin reloaded its groups.
+     *
+     * @see #invalidatePermissions(Player)
+     */
+    public void invalidatePermissions() {
+        if (this.permissionCache != null)
+            this.permissionCache.invalidateAll();
+    }
+
+    /**
+     * @return the permission cache or null if permissions are not cached
+     */
+    PermissionCache getPermissionCache() {
+        return this.isCachingPermissions() ? this.permissionCache : null;
+    }
+
+    /**
+     * Answer tab completions for commands registered with this lib off the main thread,
+     * from the {@code AsyncTabCompleteEvent} of servers that have it (such as Paper).
+     * Other servers keep completing on the main thread.
+     * <p>
+     * {@link io.github.mrblobman.spigotcommandlib.args.CompletionProvider CompletionProviders}
+     * are then called from other threads as well. Permissions are not thread safe, so off the
+     * main thread only players whose commands are in the permission cache are answered, see
+     * {@link #setCachePermissions(boolean)}. Players are not thread safe either, so
+     * {@link io.github.mrblobman.spigotcommandlib.args.CompletionProvider#ONLINE_PLAYERS} suggests
+     * nothing off the main thread. Every other completion is left to the main thread.
+     *
+     * @param async true to complete asynchronously when possible, false to complete on the main thread
+     *
+     * @return true iff completions are now answered off the main thread
+     */
+    public boolean setAsyncTabComplete(boolean async) {
+        if (this.asyncTabCompleter == null) {
+            if (!async || !AsyncTabCompleter.isSupported()) return false;
+            this.asyncTabCompleter = new AsyncTabCompleter(this);
+        }
+        this.asyncTabCompleter.setEnabled(async);
+        return this.asyncTabCompleter.isEnabled();
+    }
+
+    public boolean isAsyncTabCompleting() {
+        return this.asyncTabCompleter != null && this.asyncTabCompleter.isEnabled();
+    }
+
+    /**
+     * Answer a player's tab completions from their last completion for the {@code interval}
+     * after it is computed. Clients ask again on almost every keystroke, typing more of the
+     * same part is then answered by narrowing the remembered suggestions.
+     * <p>
+     * Permission and state changes are only seen by completions after the interval.
+     *
+     * @param interval the time to remember a completion for, 0 to always compute them
+     * @param unit     the unit of {@code interval}
+     */
+    public void setTabCompleteInterval(long interval, TimeUnit unit) {
+        if (this.completionCache == null) {
+            if (interval <= 0) return;
+            this.completionCache = new CompletionCache(this);
+        }
+        this.completionCache.setInterval(interval, unit);
+    }
+
+    public long getTabCompleteInterval(TimeUnit unit) {
+        return this.completionCache == null ? 0 : this.completionCache.getInterval(unit);
+    }
+
+    /**
+     * @return the completion cache or null if completions are not remembered
+     */
+    CompletionCache getCompletionCache() {
+        return this.completionCache != null && this.completionCache.getInterval(TimeUnit.NANOSECONDS) > 0 ? this.completionCache : null;
+    }
+
+    /**
+     * Set the number of commands described on each page of help. Help is not paged by
+     * default, players can only reach later pages if the plugin offers a way to request them
+     * with {@link #sendHelpMessage(CommandSender, int, String...)}.
+     *
+     * @param helpPageSize the number of commands per page. See: {@link #NO_LIMIT}
+     */
+    public void setHelpPageSize(int helpPageSize) {
+        this.helpPageSize = Math.max(NO_LIMIT, helpPageSize);
+    }
+
+    public int getHelpPageSize() {
+        return this.helpPageSize;
+    }
+
+    /**
+     * Set the maximum number of suggestions returned when tab completing a command.
+     *
+     * @param maxCompletions the maximum number of suggestions. See: {@link #NO_LIMIT}
+     */
+    public void setMaxCompletions(int maxCompletions) {
+        this.maxCompletions = Math.max(NO_LIMIT, maxCompletions);
+    }
+
+    public int getMaxCompletions() {
+        return this.maxCompletions;
+    }
+
+    /**
+     * Set how handler methods are called. This only applies to handlers registered after
+     * the change.
+     *
+     * @param invokerBackend the backend to compile handler invokers with
+     */
+    public void setInvokerBackend(InvokerBackend invokerBackend) {
+        this.invokerBackend = Objects.requireNonNull(invokerBackend, "invokerBackend");
+    }
+
+    public InvokerBackend getInvokerBackend() {
+        return this.invokerBackend;
+    }
+
+    /**
+     * Run the fragments of each player one at a time, for plugins that execute fragmented
+     * commands off the main thread. Reading a player's state and running the fragment for
+     * it then happen under a lock so two quick commands cannot both act on the same state.
+     * Different players still run in parallel. This only applies to fragmented handlers
+     * registered after the change.
+     *
+     * @param serialize true to lock each player's fragments, false to run them unguarded
+     */
+    public void setSerializeFragments(boolean serialize) {
+        this.serializeFragments = serialize;
+    }
+
+    public boolean isSerializingFragments() {
+        return this.serializeFragments;
+    }
+
+    /**
+     * Check the command {@code label arg0 arg1 ...} against the configured limits. The cost
+     * of the check is bounded by the limits rather than the size of the command.
+     *
+     * @param label the label the command was executed with
+     * @param args  the arguments as split on spaces by Bukkit
+     *
+     * @return true iff the command is within the configured limits.
+     */
+    boolean isWithinLimits(String label, String[] args) {
+        if (this.maxCommandParts != NO_LIMIT && args.length + 1 > this.maxCommandParts)
+            return false;
+
+        if (this.maxCommandLength == NO_LIMIT)
+            return true;
+
+        // Each argument adds at least one to the length so this stops after at most maxCommandLength arguments
+        int length = label.length();
+        for (int i = 0; i < args.length && length <= this.maxCommandLength; i++)
+            length += 1 + args[i].length();
+
+        return length <= this.maxCommandLength;
+    }
+
+    /**
+     * Check the raw command starting at {@code from} in {@code line} against the configured
+     * limits. The cost of the check is bounded by the limits rather than the size of the command.
+     *
+     * @param line the raw command line
+     * @param from the index of the start of the command (after the slash)
+     *
+     * @return true iff the command is within the configured limits.
+     */
+    boolean isWithinLimits(String line, int from) {
+        if (this.maxCommandLength != NO_LIMIT && line.length() - from > this.maxCommandLength)
+            return false;
+
+        if (this.maxCommandParts == NO_LIMIT)
+            return true;
+
+        // Count the parts the same way Bukkit splits them, on each space
+        int parts = 1;
+        for (int i = from; i < line.length() && parts <= this.maxCommandParts; i++)
+            if (line.charAt(i) == ' ')
+                parts++;
+
+        return parts <= this.maxCommandParts;
+    }
+
     /**
      * @return the plugin using this instance of the lib.
      */
@@ -130,11 +424,95 @@ public class CommandLib {
         return registry.handleCommand(sender, command);
     }
 
+    /**
+     * Execute the split command. The sender is sent help if the command could not
+     * be executed and a generic error if execution failed.
+     *
+     * @param sender  the {@link CommandSender} that sent the command
+     * @param command the command split into parts
+     *
+     * @return false iff the command could not be executed
+     */
+    boolean dispatch(CommandSender sender, String[] command) {
+        try {
+            if (!this.execute(sender, command)) {
+                this.sendHelpMessage(sender, command);
+                return false;
+            }
+        } catch (Exception e) {
+            sender.sendMessage(ChatColor.RED + "An internal error has occurred. Please contact a server administrator.");
+            this.hook.getLogger().log(Level.SEVERE, "Error executing " + String.join(" ", command), e);
+        }
+        return true;
+    }
+
+    DispatchNode getInterceptedBaseCommand(String label) {
+        return registry.getInterceptedBaseCommand(label);
+    }
+
+    DispatchTree getDispatchTree() {
+        return registry.getDispatchTree();
+    }
+
     protected List<String> tabComplete(CommandSender sender, String[] command) {
-        return registry.getPossibleSubCommands(command);
+        return registry.complete(sender, command);
+    }
+
+    /**
+     * Suggest completions for the last part of the command line {@code buffer}. This may be
+     * called from any thread. Permissions cannot be checked off the main thread, so there the
+     * sender's commands must already be in the permission cache (see {@link #setCachePermissions(boolean)})
+     * or this suggests nothing.
+     *
+     * @param sender the sender typing the command
+     * @param buffer the command line typed so far, with or without the leading slash
+     *
+     * @return the suggestions, empty if the command is not registered with this lib
+     */
+    public List<String> tabComplete(CommandSender sender, String buffer) {
+        int from = buffer.startsWith("/") ? 1 : 0;
+        int labelEnd = buffer.indexOf(' ', from);
+        // Bukkit completes the labels itself
+        if (labelEnd < 0)
+            return Collections.emptyList();
+
+        DispatchNode base = this.getInterceptedBaseCommand(buffer.substring(from, labelEnd));
+        if (base == null || !this.isWithinLimits(buffer, from))
+            return Collections.emptyList();
+
+        boolean appendSpace = buffer.charAt(buffer.length() - 1) == ' ';
+        return registry.complete(sender, CommandTokenizer.tokenize(base.getCommand().getName(), buffer, labelEnd, appendSpace));
+    }
+
+    /**
+     * Suggest completions for the command line {@code buffer} on the {@code executor}.
+     *
+     * @param sender   the sender typing the command
+     * @param buffer   the command line typed so far, with or without the leading slash
+     * @param executor the executor to compute the completions on
+     *
+     * @return the future suggestions
+     *
+     * @see #tabComplete(CommandSender, String)
+     */
+    public CompletableFuture<List<String>> tabCompleteAsync(CommandSender sender, String buffer, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> this.tabComplete(sender, buffer), executor);
     }
 
     public void sendHelpMessage(CommandSender sender, String... searchQuery) {
         this.registry.displayHelp(sender, searchQuery);
     }
+
+    /**
+     * Send a page of help for the commands starting with the {@code searchQuery}.
+     *
+     * @param sender      the sender to send the help to
+     * @param page        the page to send, starting at 1
+     * @param searchQuery the start of the commands to describe
+     *
+     * @see #setHelpPageSize(int)
+     */
+    public void sendHelpMessage(CommandSender sender, int page, String... searchQuery) {
+        this.registry.displayHelp(sender, page, searchQuery);
+    }
 }
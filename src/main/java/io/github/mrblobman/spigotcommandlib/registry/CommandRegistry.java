@@ -25,11 +25,13 @@ package io.github.mrblobman.spigotcommandlib.registry;
 
 import io.github.mrblobman.spigotcommandlib.*;
 import io.github.mrblobman.spigotcommandlib.args.*;
-import io.github.mrblobman.spigotcommandlib.context.SimpleContextProvider;
+import io.github.mrblobman.spigotcommandlib.context.ContextProvider;
 import io.github.mrblobman.spigotcommandlib.invocation.CommandMethodHandle;
+import io.github.mrblobman.spigotcommandlib.invocation.HandlerInvoker;
 import io.github.mrblobman.spigotcommandlib.util.ChatUtils;
 import net.md_5.bungee.api.ChatColor;
 import org.bukkit.Bukkit;
+import org.bukkit.command.Command;
 import org.bukkit.command.CommandMap;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
@@ -43,8 +45,6 @@ import java.lang.reflect.Parameter;
 import java.util.*;
 import java.util.function.Predicate;
 import java.util.logging.Level;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class CommandRegistry implements Listener {
     private static final String[] EMPTY_STR_ARRAY = new String[0];
@@ -68,8 +68,13 @@ public class CommandRegistry implements Listener {
     }
 
     private final Map<String, SubCommand> baseCommands = new HashMap<>();
-    private final Map<SubCommand, CommandExecutor> executors = new HashMap<>();
+    // SubCommand's equals and hashCode walk the whole super chain, the trigger instances are unique anyways
+    private final Map<SubCommand, CommandExecutor> executors = new IdentityHashMap<>();
+    private volatile DispatchTree dispatchTree = DispatchTree.EMPTY;
+    // The labels bukkit resolves to one of our base commands
+    private volatile NameTable<DispatchNode> interceptedLabels = new NameTable<>(Collections.emptyMap());
     private final BundleCleaner bundleCleaner;
+    private final ContextCleaner contextCleaner;
     private final CommandMap bukkitCommandMap;
     private final CommandLib lib;
 
@@ -90,6 +95,7 @@ public class CommandRegistry implements Listener {
             throw new InstantiationException("Could not grab the command map from the bukkit server.");
         }
         this.bundleCleaner = new BundleCleaner(lib.getHook());
+        this.contextCleaner = new ContextCleaner(lib);
         this.bukkitCommandMap = (CommandMap) rawMap;
         this.lib = lib;
     }
@@ -108,6 +114,8 @@ public class CommandRegistry implements Listener {
 
             lib.getHook().getLogger().log(Level.INFO, "Successfully registered " + method.getName() + " in " + commandHandler.getClass().getSimpleName() + " for /" + Arrays.toString(handlerAnnotation.command()).replaceAll("[,\\[\\]]", ""));
         }
+
+        this.compileDispatchTree();
     }
 
     public void register(SubCommandHandler commandHandler, String... subCommandPrefix) throws HandlerCompilationException {
@@ -128,11 +136,16 @@ public class CommandRegistry implements Listener {
 
             lib.getHook().getLogger().log(Level.INFO, "Successfully registered " + method.getName() + " in " + commandHandler.getClass().getSimpleName() + " for /" + Arrays.toString(command).replaceAll("[,\\[\\]]", ""));
         }
+
+        this.compileDispatchTree();
     }
 
     public <T extends FragmentExecutionContext> void register(FragmentedCommandHandler<T> commandHandler, String permission, long timeout, FragmentedCommandContextSupplier<T> supplier, String... subCommandPrefix) throws HandlerCompilationException {
         Class<?> contextType = supplier.get().getClass(); // A small hack to get the generic type of the handler.
-        Map<SubCommand, Map<Integer, CommandMethodHandle>> commandHandles = new HashMap<>();
+        Map<SubCommand, Map<Integer, CommandMethodHandle>> commandHandles = new IdentityHashMap<>();
+        Map<SubCommand, Map<Integer, int[]>> commandTransitions = new IdentityHashMap<>();
+        Map<Integer, Set<Integer>> transitions = new HashMap<>();
+        Map<Method, int[]> declaredTransitions = new LinkedHashMap<>();
 
         for (Method method : commandHandler.getClass().getDeclaredMethods()) {
             FragmentedCommandHandle handlerAnnotation = method.getAnnotation(FragmentedCommandHandle.class);
@@ -151,19 +164,152 @@ public class CommandRegistry implements Listener {
                 lib.getHook().getLogger().log(Level.WARNING, "Overwriting handle for " + trigger.toString() + " with " + method.getName() + " because both fragments have the same sub command and state.");
 
             variants.put(handlerAnnotation.state(), handle);
+            commandTransitions.computeIfAbsent(trigger, t -> new HashMap<>()).put(handlerAnnotation.state(), handlerAnnotation.transitions());
+
+            Set<Integer> targets = transitions.computeIfAbsent(handlerAnnotation.state(), s -> new HashSet<>());
+            if (handlerAnnotation.transitions().length > 0) {
+                for (int target : handlerAnnotation.transitions())
+                    targets.add(target);
+                declaredTransitions.put(method, handlerAnnotation.transitions());
+            }
+
             lib.getHook().getLogger().log(Level.INFO, "Registering fragment " + method.getName() + " in " + commandHandler.getClass().getSimpleName() + " for " + trigger.toString() + " when in state " + handlerAnnotation.state());
         }
 
+        boolean checkTransitions = this.checkTransitions(commandHandler, transitions, declaredTransitions);
+
         // All the commands need to share the context provider
-        SimpleContextProvider<T> provider = new SimpleContextProvider<>(supplier::get);
+        ContextProvider<T> provider = this.contextCleaner.createProvider(supplier::get, timeout, commandHandler::onCleanup);
 
         commandHandles.forEach((trigger, variants) -> {
-            CommandExecutor executor = new ContextSensitiveCommand<>(trigger, variants, provider);
+            Map<Integer, StateTransitions> variantTransitions = null;
+            if (checkTransitions) {
+                variantTransitions = new HashMap<>();
+                for (Map.Entry<Integer, int[]> fragment : commandTransitions.get(trigger).entrySet())
+                    variantTransitions.put(fragment.getKey(), new StateTransitions(fragment.getValue()));
+            }
+
+            CommandExecutor executor = new ContextSensitiveCommand<>(trigger, variants, variantTransitions, provider);
 
             this.executors.put(trigger, executor);
 
             lib.getHook().getLogger().log(Level.INFO, "Successfully registered variants for " + trigger.toString());
         });
+
+        this.compileDispatchTree();
+    }
+
+    /**
+     * Check the transitions declared by the fragments of a handler.
+     *
+     * @param commandHandler      the handler the fragments are in
+     * @param transitions         every state handled by a fragment mapped to the states its fragments may move to
+     * @param declaredTransitions the fragments that declare transitions mapped to the declared states
+     *
+     * @return true iff the handler declares transitions and they must be checked
+     *
+     * @throws HandlerCompilationException if a fragment may move to a state that no fragment handles
+     */
+    private boolean checkTransitions(FragmentedCommandHandler<?> commandHandler, Map<Integer, Set<Integer>> transitions, Map<Method, int[]> declaredTransitions) throws HandlerCompilationException {
+        if (declaredTransitions.isEmpty())
+            return false;
+
+        for (Map.Entry<Method, int[]> declared : declaredTransitions.entrySet()) {
+            for (int target : declared.getValue()) {
+                if (!transitions.containsKey(target))
+                    throw new HandlerCompilationException(MethodDescriptor.fromMethod(declared.getKey()), "Transition to state %d but no fragment handles that state.", target);
+            }
+        }
+
+        // States that can never be entered are most likely a mistake in the declarations
+        Set<Integer> reachable = new HashSet<>();
+        Deque<Integer> pending = new ArrayDeque<>();
+        pending.add(FragmentExecutionContext.DEFAULT_STATE);
+        while (!pending.isEmpty()) {
+            Integer state = pending.poll();
+            if (reachable.add(state))
+                pending.addAll(transitions.getOrDefault(state, Collections.emptySet()));
+        }
+        transitions.keySet().stream()
+                .filter(state -> !reachable.contains(state))
+                .forEach(state -> lib.getHook().getLogger().log(Level.WARNING, "State " + state + " in " + commandHandler.getClass().getSimpleName() + " is not reachable from state " + FragmentExecutionContext.DEFAULT_STATE + " with the declared transitions."));
+
+        return true;
+    }
+
+    /**
+     * Rebuild the read only {@link DispatchTree} from the current {@link SubCommand}
+     * graph. This must be invoked after any change to the graph for the change to
+     * be visible to dispatch.
+     */
+    private synchronized void compileDispatchTree() {
+        DispatchTree tree = DispatchTree.compile(this.baseCommands, this.executors);
+
+        // Bukkit also registers every label with the plugin's name as a prefix, and another
+        // plugin may own a label first. Only the labels actually routed to us can be intercepted.
+        String prefix = this.lib.getHook().getName().toLowerCase() + ":";
+        Map<String, DispatchNode> intercepted = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        this.baseCommands.keySet().forEach(label -> {
+            DispatchNode node = tree.getBaseCommand(label);
+            if (this.isRoutedToThisLib(label))
+                intercepted.put(label, node);
+            if (this.isRoutedToThisLib(prefix + label))
+                intercepted.put(prefix + label, node);
+        });
+
+        this.interceptedLabels = new NameTable<>(intercepted);
+        this.dispatchTree = tree;
+
+        // Names and aliases may have changed so anything rendered from the old tree is stale
+        this.executors.values().forEach(executor -> {
+            if (executor instanceof BaseCommandExecutor)
+                ((BaseCommandExecutor) executor).invalidateRendering();
+        });
+    }
+
+    private boolean isRoutedToThisLib(String label) {
+        Command command = this.bukkitCommandMap.getCommand(label);
+        return command instanceof BukkitInterceptorCommand && ((BukkitInterceptorCommand) command).getLib() == this.lib;
+    }
+
+    /**
+     * Find the base command that Bukkit would route {@code label} to if it
+     * were dispatched through the command map.
+     *
+     * @param label the label the command was sent with, possibly prefixed with the plugin name
+     *
+     * @return the base command's node or null if the label does not lead to a command in this registry
+     */
+    DispatchNode getInterceptedBaseCommand(String label) {
+        return this.interceptedLabels.get(label);
+    }
+
+    DispatchTree getDispatchTree() {
+        return this.dispatchTree;
+    }
+
+    /**
+     * Check if {@code sender} has permission to execute the {@code node} and all of its super
+     * commands, through the {@link PermissionCache} if it is enabled.
+     */
+    private boolean canExecute(CommandSender sender, DispatchTree tree, DispatchNode node) {
+        PermissionCache cache = this.lib.getPermissionCache();
+        if (cache != null && sender instanceof Player)
+            return cache.getExecutable((Player) sender, tree).get(node.getIndex());
+        return node.getCommand().canBeExecutedBy(sender);
+    }
+
+    /**
+     * Find the nodes the {@code sender} may execute, through the {@link PermissionCache} if it
+     * is enabled. Without the cache only the nodes under {@code node} are checked.
+     *
+     * @param node the node to check the subtree of or null to check the whole tree
+     */
+    private BitSet getExecutable(CommandSender sender, DispatchTree tree, DispatchNode node) {
+        PermissionCache cache = this.lib.getPermissionCache();
+        if (cache != null && sender instanceof Player)
+            return cache.getExecutable((Player) sender, tree);
+        return node == null ? tree.getExecutable(sender) : tree.getExecutable(sender, node);
     }
 
     private CommandMethodHandle buildFragmentHandle(Method method, Object commandHandler, Class<?> contextType, String[] command, String permission, List<String> desc) throws HandlerCompilationException {
@@ -187,7 +333,8 @@ public class CommandRegistry implements Listener {
             throw new HandlerCompilationException(methodDesc, "Error accessing method.", e);
         }
 
-        return new CommandMethodHandle(senderParam.getType(), cmdParams, desc, methodHandle);
+        HandlerInvoker invoker = this.lib.getInvokerBackend().compile(commandHandler, method, methodHandle);
+        return new CommandMethodHandle(senderParam.getType(), cmdParams, desc, methodHandle, invoker);
     }
 
     private CommandExecutor buildContextInsensitiveCommand(Method method, Object commandHandler, String[] command, String permission, List<String> desc) throws HandlerCompilationException {
@@ -210,7 +357,8 @@ public class CommandRegistry implements Listener {
             throw new HandlerCompilationException(methodDesc, "Error accessing method.", e);
         }
 
-        CommandMethodHandle handle = new CommandMethodHandle(senderParam.getType(), cmdParams, desc, methodHandle);
+        HandlerInvoker invoker = this.lib.getInvokerBackend().compile(commandHandler, method, methodHandle);
+        CommandMethodHandle handle = new CommandMethodHandle(senderParam.getType(), cmdParams, desc, methodHandle, invoker);
 
         return new ContextInsensitiveCommand(cmd, handle);
     }
@@ -275,7 +423,13 @@ public class CommandRegistry implements Listener {
             if (formatter == null)
                 throw new HandlerCompilationException(method, "Unknown argument type %s for parameter %s.", p.getType().getSimpleName(), name);
 
-            CommandParameter<?> param = new CommandParameter<>(kind, formatter, p.getType(), name, desc);
+            CompletionProvider completions = argDesc != null && argDesc.completePlayers()
+                    ? CompletionProvider.ONLINE_PLAYERS
+                    : argDesc != null && argDesc.completions().length != 0
+                            ? CompletionProvider.of(argDesc.completions())
+                            : formatter.getCompletions();
+
+            CommandParameter<?> param = new CommandParameter<>(kind, formatter, p.getType(), name, desc, completions);
 
             cmdParams.add(param);
         }
@@ -367,26 +521,116 @@ public class CommandRegistry implements Listener {
      * @return a List containing the possible sub commands that may follow, will never return null
      */
     public List<String> getPossibleSubCommands(String[] enteredCommand) {
-        // TODO not case insensitive
-        SubCommand sub = this.getSubCommand(enteredCommand);
-        if (sub == null) {
-            //Try to partially fix the last arg
-            sub = this.getSubCommand(Arrays.copyOfRange(enteredCommand, 0, enteredCommand.length - 1));
-            if (sub == null) {
-                //Nope they are lost
-                return Collections.emptyList();
-            }
-            String lastEntered = enteredCommand[enteredCommand.length - 1];
-            return sub.getSubCommands().stream()
-                    .filter(it -> it.startsWith(lastEntered))
-                    .collect(Collectors.toList());
-        } else {
-            if (sub.canBeInvokedBy(enteredCommand[enteredCommand.length - 1])) {
-                //We have a complete command
-                return Collections.emptyList();
-            }
-            return sub.getSubCommands();
-        }
+        return this.getPossibleSubCommands(this.dispatchTree, enteredCommand, child -> true);
+    }
+
+    /**
+     * Usage designed for tab complete. Only the sub commands the {@code sender} has permission
+     * to execute are suggested.
+     *
+     * @param sender         the sender completing the command
+     * @param enteredCommand the partial command entered
+     *
+     * @return a List containing the possible sub commands that may follow, will never return null
+     */
+    public List<String> getPossibleSubCommands(CommandSender sender, String[] enteredCommand) {
+        DispatchTree tree = this.dispatchTree;
+        return this.getPossibleSubCommands(tree, enteredCommand, child -> child != null && this.canExecute(sender, tree, child));
+    }
+
+    /**
+     * Usage designed for tab complete. Suggests the sub commands the {@code sender} has permission
+     * to execute as well as values for the argument being typed.
+     *
+     * @param sender         the sender completing the command
+     * @param enteredCommand the partial command entered, the last part is the one being completed
+     *
+     * @return a List containing the suggestions for the last part, will never return null
+     */
+    public List<String> complete(CommandSender sender, String[] enteredCommand) {
+        if (enteredCommand.length < 2)
+            return Collections.emptyList();
+
+        DispatchTree tree = this.dispatchTree;
+        DispatchNode node = tree.getBaseCommand(enteredCommand[0]);
+        if (node == null)
+            return Collections.emptyList();
+
+        int last = enteredCommand.length - 1;
+        DispatchNode next;
+        int i;
+        for (i = 1; i < last && (next = node.getChild(enteredCommand[i])) != null; i++)
+            node = next;
+
+        // i is the index of the first arg
+        int limit = this.lib.getMaxCompletions();
+        CompletionCache cache = sender instanceof Player ? this.lib.getCompletionCache() : null;
+        UUID id = cache == null ? null : ((Player) sender).getUniqueId();
+        List<String> completions = cache == null ? null : cache.get(id, tree, node, i, enteredCommand);
+        if (completions != null)
+            return completions;
+
+        Predicate<DispatchNode> executable = this.getExecutableFilter(sender, tree);
+        // Not remembered, the main thread completes this again with the permissions it can check
+        if (executable == null)
+            return Collections.emptyList();
+
+        completions = this.complete(sender, node, enteredCommand, i, limit, executable);
+        // Providers that need the main thread suggest nothing off of it, the main thread
+        // completes empty results again so they are not remembered
+        if (cache != null && (!completions.isEmpty() || Bukkit.isPrimaryThread()))
+            cache.put(id, tree, node, i, enteredCommand, completions, limit);
+        return completions;
+    }
+
+    /**
+     * Test which nodes of the {@code tree} the {@code sender} may execute. {@link org.bukkit.permissions.Permissible}s
+     * are not thread safe so off the main thread only the permissions already in the
+     * {@link PermissionCache} can be used.
+     *
+     * @return the filter or null if the permissions cannot be checked on this thread
+     */
+    private Predicate<DispatchNode> getExecutableFilter(CommandSender sender, DispatchTree tree) {
+        if (Bukkit.isPrimaryThread())
+            return child -> this.canExecute(sender, tree, child);
+
+        PermissionCache cache = this.lib.getPermissionCache();
+        BitSet executable = cache != null && sender instanceof Player
+                ? cache.getCachedExecutable(((Player) sender).getUniqueId(), tree)
+                : null;
+        return executable == null ? null : child -> executable.get(child.getIndex());
+    }
+
+    // Suggest the children of node and the arguments of its executor for the last part
+    private List<String> complete(CommandSender sender, DispatchNode node, String[] enteredCommand, int i, int limit, Predicate<DispatchNode> executable) {
+        int last = enteredCommand.length - 1;
+        List<String> subCommands = i == last
+                ? node.completeChild(enteredCommand[last], executable, limit)
+                : Collections.emptyList();
+
+        CommandExecutor executor = node.getExecutor();
+        if (executor == null || (limit != CommandLib.NO_LIMIT && subCommands.size() >= limit) || !executable.test(node))
+            return subCommands;
+
+        List<String> arguments = executor.complete(sender, enteredCommand, i, limit == CommandLib.NO_LIMIT ? limit : limit - subCommands.size());
+        if (subCommands.isEmpty())
+            return arguments;
+        if (arguments.isEmpty())
+            return subCommands;
+
+        List<String> completions = new ArrayList<>(subCommands.size() + arguments.size());
+        completions.addAll(subCommands);
+        completions.addAll(arguments);
+        return completions;
+    }
+
+    private List<String> getPossibleSubCommands(DispatchTree tree, String[] enteredCommand, Predicate<DispatchNode> filter) {
+        // The last part is the one being completed
+        DispatchNode node = tree.resolve(enteredCommand, enteredCommand.length - 1);
+        if (node == null)
+            return Collections.emptyList();
+
+        return node.completeChild(enteredCommand[enteredCommand.length - 1], filter, this.lib.getMaxCompletions());
     }
 
     /**
@@ -403,40 +647,40 @@ public class CommandRegistry implements Listener {
         if (command == null || command.length < 1)
             throw new IllegalArgumentException("command was empty");
 
-        SubCommand cmd = this.getBaseCommand(command[0]);
-        if (cmd == null)
+        DispatchTree tree = this.dispatchTree;
+        DispatchNode node = tree.getBaseCommand(command[0]);
+        if (node == null)
             return false;
 
-        SubCommand next;
+        DispatchNode next;
         int i;
         for (i = 1; i < command.length; i++) {
-            next = cmd.getSubCommand(command[i]);
+            next = node.getChild(command[i]);
             if (next == null) break; // We went as far as we could go
-            else cmd = next;
+            else node = next;
         }
 
-        if (!cmd.canBeExecutedBy(sender)) {
+        SubCommand cmd = node.getCommand();
+
+        if (!this.canExecute(sender, tree, node)) {
             sender.sendMessage(ChatColor.RED + "You do not have permission to execute " + cmd.toString() + ".");
             return true;
         }
 
         // Invoke the command
-        CommandExecutor executor = this.executors.get(cmd);
+        CommandExecutor executor = node.getExecutor();
         if (executor == null)
             return false;
 
-        if (!executor.canExecute(sender)) {
+        // The permissions were just checked
+        if (!executor.canExecuteWithPermission(sender)) {
             sender.sendMessage(ChatColor.RED + "Cannot execute " + cmd.toString() + " in your current state.");
             return true;
         }
 
         // i is index of first arg
         try {
-            List<String> args = i < command.length
-                    ? Arrays.asList(command).subList(i, command.length)
-                    : Collections.emptyList();
-
-            executor.execute(sender, args);
+            executor.execute(sender, command, i);
         } catch (Exception e) {
             throw new CommandException(e);
         }
@@ -445,27 +689,47 @@ public class CommandRegistry implements Listener {
     }
 
     public void displayHelp(CommandSender sender, String[] partialCmdRaw) {
-        Stream<SubCommand> cmds = this.executors.keySet().stream();
+        this.displayHelp(sender, 1, partialCmdRaw);
+    }
+
+    /**
+     * Send the sender a page of the descriptions of the commands starting with {@code partialCmdRaw}.
+     *
+     * @param sender        the sender to send the help to
+     * @param page          the page to send, starting at 1. This is clamped to the available pages.
+     * @param partialCmdRaw the start of the commands to describe, empty to describe all commands
+     */
+    public void displayHelp(CommandSender sender, int page, String[] partialCmdRaw) {
+        DispatchTree tree = this.dispatchTree;
+        List<CommandExecutor> matching;
 
         if (partialCmdRaw.length > 0) {
-            SubCommand partialCmd = this.getSubCommand(partialCmdRaw);
-            if (partialCmd == null) {
+            DispatchNode partialNode = tree.resolve(partialCmdRaw);
+            if (partialNode == null) {
                 sender.sendMessage(ChatColor.YELLOW + "No commands match the query " + Arrays.toString(partialCmdRaw) + ".");
                 return;
             }
 
-            cmds = cmds.filter(cmd -> cmd.startsWith(partialCmd));
+            matching = tree.getHelp(partialNode, this.getExecutable(sender, tree, partialNode));
+        } else {
+            matching = tree.getHelp(this.getExecutable(sender, tree, null));
         }
 
-        List<CommandExecutor> matching = cmds
-                .sorted()
-                .map(this.executors::get)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-
-        if (matching.isEmpty())
+        if (matching.isEmpty()) {
             sender.sendMessage(ChatColor.RED + "No commands you are allowed to execute match the query.");
-        else
+            return;
+        }
+
+        int pageSize = this.lib.getHelpPageSize();
+        if (pageSize == CommandLib.NO_LIMIT || matching.size() <= pageSize) {
             matching.forEach(executor -> executor.sendDescription(sender));
+            return;
+        }
+
+        int pages = (matching.size() + pageSize - 1) / pageSize;
+        page = Math.max(1, Math.min(page, pages));
+        matching.subList((page - 1) * pageSize, Math.min(page * pageSize, matching.size()))
+                .forEach(executor -> executor.sendDescription(sender));
+        sender.sendMessage(ChatColor.YELLOW + String.format("Page %d of %d.", page, pages));
     }
 }
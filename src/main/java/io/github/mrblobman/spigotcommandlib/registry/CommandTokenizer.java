@@ -0,0 +1,276 @@
+package io.github.mrblobman.spigotcommandlib.registry;
+
+import java.util.Arrays;
+
+/**
+ * Splits a command into its parts in a single pass. Parts may be wrapped
+ * in single or double quotes to include whitespace and a quote may be
+ * escaped with a backslash.
+ * <p>
+ * This is a hand written equivalent of matching
+ * {@code (?:(['"])(.*?)(?<!\\)(?>\\\\)*\1|([^\s]+))} over the command and
+ * replacing each {@code \"} in a part with {@code "}. It reads the
+ * arguments Bukkit already split in place rather than joining them back
+ * together and a part that is exactly one of those arguments is returned
+ * without being copied.
+ * <p>
+ * Tokenizing takes time linear in the length of the command. A quote that
+ * opens a part is always a valid closing quote for an earlier quote of the
+ * same kind, so a search for a closing quote either ends inside the part
+ * that consumes it or fails and no other quote of that kind can open a part
+ * before the line terminator (or end of command) that stopped it.
+ */
+final class CommandTokenizer {
+    private static final String[] EMPTY_STR_ARRAY = new String[0];
+
+    private CommandTokenizer() {}
+
+    /**
+     * Tokenize the command {@code label arg0 arg1 ...}.
+     *
+     * @param label            the label the command was executed with
+     * @param args             the arguments as split on spaces by Bukkit
+     * @param appendExtraSpace true if an extra empty part should be appended to the end of the
+     *                         split
+     *
+     * @return the properly split command
+     */
+    static String[] tokenize(String label, String[] args, boolean appendExtraSpace) {
+        Source src = new JoinedSource(label, args);
+        return tokenize(src, src.length() > 0 && src.charAt(0) == '/' ? 1 : 0, null, args.length + 1, appendExtraSpace);
+    }
+
+    /**
+     * Tokenize the arguments in the raw {@code line} starting at {@code from}. The parts are
+     * slices of {@code line} so any whitespace inside of a quoted part is kept as is.
+     *
+     * @param label the label to put in front of the arguments
+     * @param line  the raw command line
+     * @param from  the index in {@code line} that the arguments start at
+     *
+     * @return the label followed by the properly split arguments
+     */
+    static String[] tokenize(String label, String line, int from) {
+        return tokenize(label, line, from, false);
+    }
+
+    /**
+     * @param appendExtraSpace true if an extra empty part should be appended to the end of the
+     *                         split
+     *
+     * @see #tokenize(String, String, int)
+     */
+    static String[] tokenize(String label, String line, int from, boolean appendExtraSpace) {
+        return tokenize(new StringSource(line), from, label, 8, appendExtraSpace);
+    }
+
+    private static String[] tokenize(Source src, int pos, String label, int expectedParts, boolean appendExtraSpace) {
+        String[] parts = new String[expectedParts + (appendExtraSpace ? 1 : 0)];
+        int count = 0;
+
+        if (label != null)
+            parts[count++] = label;
+
+        int len = src.length();
+        while (pos < len) {
+            char c = src.charAt(pos);
+            if (isWhitespace(c)) {
+                pos++;
+                continue;
+            }
+
+            String part = null;
+            if (c == '"' || c == '\'') {
+                int contentEnd = findClosingQuote(src, pos, c);
+                if (contentEnd >= 0) {
+                    part = unescape(src, pos + 1, contentEnd);
+                    // Skip the escaped backslashes between the content and the closing quote
+                    pos = contentEnd;
+                    while (src.charAt(pos) != c)
+                        pos++;
+                    pos++;
+                }
+            }
+
+            if (part == null) {
+                int start = pos;
+                while (pos < len && !isWhitespace(src.charAt(pos)))
+                    pos++;
+                part = unescape(src, start, pos);
+            }
+
+            if (count == parts.length)
+                parts = Arrays.copyOf(parts, count * 2 + 1);
+            parts[count++] = part;
+        }
+
+        if (appendExtraSpace) {
+            if (count == parts.length)
+                parts = Arrays.copyOf(parts, count + 1);
+            parts[count++] = "";
+        }
+
+        if (count == 0)
+            return EMPTY_STR_ARRAY;
+        return count == parts.length ? parts : Arrays.copyOf(parts, count);
+    }
+
+    /**
+     * Find the end of the content of the quoted part opened at {@code open}. The content
+     * ends at the first position that is not preceded by a backslash, followed by an even
+     * number of backslashes and then the opening quote. The content may not contain a line
+     * terminator.
+     *
+     * @param src   the source being tokenized
+     * @param open  the index of the opening quote
+     * @param quote the opening quote character
+     *
+     * @return the exclusive end index of the content or -1 if the quote is never closed
+     */
+    private static int findClosingQuote(Source src, int open, char quote) {
+        int len = src.length();
+        for (int end = open + 1; end < len; end++) {
+            char prev = src.charAt(end - 1);
+            if (end > open + 1 && isLineTerminator(prev))
+                return -1;
+            if (prev == '\\')
+                continue;
+
+            int slashes = 0;
+            while (end + slashes < len && src.charAt(end + slashes) == '\\')
+                slashes++;
+
+            if ((slashes & 1) == 0 && end + slashes < len && src.charAt(end + slashes) == quote)
+                return end;
+        }
+        return -1;
+    }
+
+    private static String unescape(Source src, int start, int end) {
+        for (int i = start; i < end - 1; i++) {
+            if (src.charAt(i) == '\\' && src.charAt(i + 1) == '"') {
+                StringBuilder unescaped = new StringBuilder(end - start - 1);
+                for (int j = start; j < end; j++) {
+                    char c = src.charAt(j);
+                    if (c == '\\' && j + 1 < end && src.charAt(j + 1) == '"') {
+                        unescaped.append('"');
+                        j++;
+                    } else {
+                        unescaped.append(c);
+                    }
+                }
+                return unescaped.toString();
+            }
+        }
+        return src.slice(start, end);
+    }
+
+    // Matches the regex \s
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    // Matches the characters the regex . does not
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private interface Source {
+        int length();
+
+        char charAt(int index);
+
+        String slice(int start, int end);
+    }
+
+    private static final class StringSource implements Source {
+        private final String str;
+
+        StringSource(String str) {
+            this.str = str;
+        }
+
+        @Override
+        public int length() {
+            return this.str.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return this.str.charAt(index);
+        }
+
+        @Override
+        public String slice(int start, int end) {
+            return this.str.substring(start, end);
+        }
+    }
+
+    /**
+     * A view of {@code label + " " + String.join(" ", args)} that never
+     * builds the joined string.
+     */
+    private static final class JoinedSource implements Source {
+        private final String label;
+        private final String[] args;
+        private final int length;
+
+        // The part (-1 for the label) containing the index of the last access
+        // and where it starts. Access is mostly sequential.
+        private int part = -1;
+        private int partStart = 0;
+
+        JoinedSource(String label, String[] args) {
+            this.label = label;
+            this.args = args;
+            int length = label.length();
+            for (String arg : args)
+                length += 1 + arg.length();
+            this.length = length;
+        }
+
+        private String part(int part) {
+            return part < 0 ? this.label : this.args[part];
+        }
+
+        // Move the cursor to the part containing index, the space after a part belongs to the part
+        private void seek(int index) {
+            while (index < this.partStart) {
+                this.part--;
+                this.partStart -= this.part(this.part).length() + 1;
+            }
+            while (this.part < this.args.length - 1 && index > this.partStart + this.part(this.part).length()) {
+                this.partStart += this.part(this.part).length() + 1;
+                this.part++;
+            }
+        }
+
+        @Override
+        public int length() {
+            return this.length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            this.seek(index);
+            String part = this.part(this.part);
+            int offset = index - this.partStart;
+            return offset < part.length() ? part.charAt(offset) : ' ';
+        }
+
+        @Override
+        public String slice(int start, int end) {
+            this.seek(start);
+            String part = this.part(this.part);
+            int offset = start - this.partStart;
+            if (end - this.partStart <= part.length())
+                // String#substring returns the part itself when it spans the whole part
+                return part.substring(offset, end - this.partStart);
+
+            StringBuilder slice = new StringBuilder(end - start);
+            for (int i = start; i < end; i++)
+                slice.append(this.charAt(i));
+            return slice.toString();
+        }
+    }
+}
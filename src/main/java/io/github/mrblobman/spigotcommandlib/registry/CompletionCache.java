@@ -0,0 +1,121 @@
+package io.github.mrblobman.spigotcommandlib.registry;
+
+import io.github.mrblobman.spigotcommandlib.util.SearchUtils;
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers the last tab completion of each player. Clients ask for completions on almost
+ * every keystroke, so for a short interval after a completion is computed the same part of
+ * the same command is answered from the memo. A longer prefix is answered by narrowing the
+ * remembered suggestions rather than by walking the tree and asking the providers again.
+ */
+public class CompletionCache implements Listener {
+    private final Map<UUID, Memo> memos = new ConcurrentHashMap<>();
+    private volatile long intervalNanos;
+
+    CompletionCache(CommandLib lib) {
+        Bukkit.getPluginManager().registerEvents(this, lib.getHook());
+    }
+
+    public long getInterval(TimeUnit unit) {
+        return unit.convert(this.intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void setInterval(long interval, TimeUnit unit) {
+        this.intervalNanos = Math.max(0, unit.toNanos(interval));
+        if (this.intervalNanos == 0)
+            this.memos.clear();
+    }
+
+    /**
+     * Answer the completion of the last part of {@code command} from the player's memo.
+     *
+     * @param id       the player's unique id
+     * @param tree     the tree the command is completed against
+     * @param node     the node the command was walked to
+     * @param argStart the index of the first part after the {@code node}
+     * @param command  the command being completed
+     *
+     * @return the remembered suggestions or null if they must be computed. The list cannot be modified.
+     */
+    List<String> get(UUID id, DispatchTree tree, DispatchNode node, int argStart, String[] command) {
+        Memo memo = this.memos.get(id);
+        if (memo == null || memo.tree != tree || memo.node != node || memo.argStart != argStart || memo.parts != command.length
+                || System.nanoTime() - memo.computedAt > this.intervalNanos)
+            return null;
+
+        String prefix = command[command.length - 1];
+        if (prefix.equals(memo.prefix))
+            return memo.completions;
+
+        // Only a full answer contains every suggestion for a longer prefix
+        if (!memo.complete || !SearchUtils.startsWithIgnoreCase(prefix, memo.prefix))
+            return null;
+
+        List<String> narrowed = new ArrayList<>(memo.completions.size());
+        for (String completion : memo.completions)
+            if (SearchUtils.startsWithIgnoreCase(completion, prefix))
+                narrowed.add(completion);
+
+        // Keep the original time so the memo is still recomputed once the interval is up
+        List<String> completions = Collections.unmodifiableList(narrowed);
+        this.memos.put(id, new Memo(tree, node, argStart, command.length, prefix, completions, true, memo.computedAt));
+        return completions;
+    }
+
+    /**
+     * Remember the completion of the last part of {@code command}.
+     *
+     * @param limit the limit the completions were computed with. See: {@link CommandLib#NO_LIMIT}
+     *
+     * @see #get(UUID, DispatchTree, DispatchNode, int, String[])
+     */
+    void put(UUID id, DispatchTree tree, DispatchNode node, int argStart, String[] command, List<String> completions, int limit) {
+        if (this.intervalNanos == 0)
+            return;
+
+        boolean complete = limit == CommandLib.NO_LIMIT || completions.size() < limit;
+        this.memos.put(id, new Memo(tree, node, argStart, command.length, command[command.length - 1],
+                Collections.unmodifiableList(new ArrayList<>(completions)), complete, System.nanoTime()));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onQuit(PlayerQuitEvent event) {
+        this.memos.remove(event.getPlayer().getUniqueId());
+    }
+
+    private static final class Memo {
+        private final DispatchTree tree;
+        private final DispatchNode node;
+        private final int argStart;
+        private final int parts;
+        private final String prefix;
+        private final List<String> completions;
+        // False if the completions were cut off at the limit
+        private final boolean complete;
+        private final long computedAt;
+
+        private Memo(DispatchTree tree, DispatchNode node, int argStart, int parts, String prefix, List<String> completions, boolean complete, long computedAt) {
+            this.tree = tree;
+            this.node = node;
+            this.argStart = argStart;
+            this.parts = parts;
+            this.prefix = prefix;
+            this.completions = completions;
+            this.complete = complete;
+            this.computedAt = computedAt;
+        }
+    }
+}
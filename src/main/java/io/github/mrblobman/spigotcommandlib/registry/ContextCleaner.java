@@ -0,0 +1,102 @@
+package io.github.mrblobman.spigotcommandlib.registry;
+
+import io.github.mrblobman.spigotcommandlib.FragmentExecutionContext;
+import io.github.mrblobman.spigotcommandlib.FragmentedCommandHandler;
+import io.github.mrblobman.spigotcommandlib.context.ContextProvider;
+import io.github.mrblobman.spigotcommandlib.context.ExpiringContextProvider;
+import io.github.mrblobman.spigotcommandlib.context.LockingContextProvider;
+import io.github.mrblobman.spigotcommandlib.context.SimpleContextProvider;
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Removes the contexts of every fragmented command registered with a {@link CommandLib}.
+ * A player's contexts are all evicted when they leave, and idle contexts of handlers with a
+ * timeout are expired from a single repeating task. Both run on the main thread so that
+ * {@link FragmentedCommandHandler#onCleanup(UUID, FragmentExecutionContext)} may use the Bukkit API.
+ */
+public class ContextCleaner implements Listener {
+    // The task runs once a second, so that is the tick of every wheel
+    private static final long TICK_MILLIS = 1000;
+    private static final long TICK_SERVER_TICKS = 20;
+
+    private final CommandLib lib;
+    private final Collection<ContextProvider<?>> providers = new CopyOnWriteArrayList<>();
+    private final Collection<ExpiringContextProvider<?>> expiringProviders = new CopyOnWriteArrayList<>();
+    private BukkitTask task;
+
+    ContextCleaner(CommandLib lib) {
+        this.lib = lib;
+        Bukkit.getPluginManager().registerEvents(this, lib.getHook());
+    }
+
+    /**
+     * Create a provider whose contexts are removed by this cleaner.
+     *
+     * @param dataSupplier the supplier creating the data of new contexts
+     * @param timeout      the time in milliseconds a context may go unused before it is removed.
+     *                     See: {@link CommandLib#NO_TIMEOUT}
+     * @param onCleanup    called with the owner and data of every removed context
+     * @param <T>          the type of the context data
+     *
+     * @return the new provider, locking each owner if {@link CommandLib#isSerializingFragments()}
+     */
+    synchronized <T> ContextProvider<T> createProvider(Supplier<T> dataSupplier, long timeout, BiConsumer<UUID, T> onCleanup) {
+        ContextProvider<T> provider;
+        if (timeout == CommandLib.NO_TIMEOUT) {
+            provider = new SimpleContextProvider<>(dataSupplier, onCleanup);
+        } else {
+            ExpiringContextProvider<T> expiring = new ExpiringContextProvider<>(dataSupplier, timeout, TICK_MILLIS, TimeUnit.MILLISECONDS, onCleanup);
+            this.expiringProviders.add(expiring);
+            if (this.task == null)
+                this.task = Bukkit.getScheduler().runTaskTimer(this.lib.getHook(), this::expire, TICK_SERVER_TICKS, TICK_SERVER_TICKS);
+            provider = expiring;
+        }
+        this.providers.add(provider);
+
+        return this.lib.isSerializingFragments() ? new LockingContextProvider<>(provider) : provider;
+    }
+
+    /**
+     * Remove all of the contexts owned by {@code owner}.
+     *
+     * @param owner the unique id of the owner
+     */
+    void evict(UUID owner) {
+        for (ContextProvider<?> provider : this.providers) {
+            try {
+                provider.evict(owner);
+            } catch (RuntimeException e) {
+                this.lib.getHook().getLogger().log(Level.SEVERE, "Error cleaning up the command contexts of " + owner + ".", e);
+            }
+        }
+    }
+
+    // Kicked players quit as well
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onQuit(PlayerQuitEvent event) {
+        this.evict(event.getPlayer().getUniqueId());
+    }
+
+    private void expire() {
+        for (ExpiringContextProvider<?> provider : this.expiringProviders) {
+            try {
+                provider.expire();
+            } catch (RuntimeException e) {
+                this.lib.getHook().getLogger().log(Level.SEVERE, "Error cleaning up expired command contexts.", e);
+            }
+        }
+    }
+}
@@ -3,7 +3,6 @@ package io.github.mrblobman.spigotcommandlib.registry;
 import io.github.mrblobman.spigotcommandlib.invocation.*;
 import org.bukkit.command.CommandSender;
 
-import java.util.Collections;
 import java.util.List;
 
 public class ContextInsensitiveCommand extends BaseCommandExecutor {
@@ -16,8 +15,13 @@ public class ContextInsensitiveCommand extends BaseCommandExecutor {
 
     @Override
     public void execute(CommandSender sender, List<String> arguments) throws Exception {
+        this.execute(sender, arguments.toArray(new String[arguments.size()]), 0);
+    }
+
+    @Override
+    public void execute(CommandSender sender, String[] command, int argStart) throws Exception {
         try {
-            this.handle.invoke(sender, arguments, Collections.emptyList());
+            this.handle.invoke(sender, command, argStart);
         } catch (BadCommandSenderException e) {
             super.sendBadCommandSenderHelp(sender, this.handle, e);
         } catch (ArgumentCountException e) {
@@ -27,6 +31,11 @@ public class ContextInsensitiveCommand extends BaseCommandExecutor {
         } // All others are ,ust be handled by the caller
     }
 
+    @Override
+    public List<String> complete(CommandSender sender, String[] command, int argStart, int limit) {
+        return super.completeArgument(sender, this.handle, command, argStart, limit);
+    }
+
     @Override
     public void sendDescription(CommandSender sender) {
         super.sendDescription(sender, this.handle);
@@ -15,62 +15,108 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.locks.Lock;
 
 public class ContextSensitiveCommand<T extends FragmentExecutionContext> extends BaseCommandExecutor {
-    private final Map<Integer, CommandMethodHandle> handles;
+    private final StateTable<CommandMethodHandle> handles;
+    // Null if the handler does not declare its transitions
+    private final StateTable<StateTransitions> transitions;
     private final ContextProvider<T> contextProvider;
 
     public ContextSensitiveCommand(SubCommand command, Map<Integer, CommandMethodHandle> handles, ContextProvider<T> contextProvider) {
+        this(command, handles, null, contextProvider);
+    }
+
+    /**
+     * @param transitions the transitions of the fragment for each state, or null if they are not checked
+     */
+    public ContextSensitiveCommand(SubCommand command, Map<Integer, CommandMethodHandle> handles, Map<Integer, StateTransitions> transitions, ContextProvider<T> contextProvider) {
         super(command);
-        this.handles = handles;
+        this.handles = new StateTable<>(handles);
+        this.transitions = transitions == null ? null : new StateTable<>(transitions);
         this.contextProvider = contextProvider;
     }
 
     @Override
-    public boolean canExecute(CommandSender sender) {
-        if (!super.canExecute(sender))
-            return false;
+    public boolean canExecuteWithPermission(CommandSender sender) {
+        return sender instanceof Player && this.getCurrentHandle((Player) sender) != null;
+    }
 
-        if (!(sender instanceof Player))
-            return false;
+    @Override
+    public List<String> complete(CommandSender sender, String[] command, int argStart, int limit) {
+        CommandMethodHandle handle = sender instanceof Player ? this.getCurrentHandle((Player) sender) : null;
+        return handle == null ? Collections.emptyList() : super.completeArgument(sender, handle, command, argStart, limit);
+    }
 
-        UUID id = ((Player) sender).getUniqueId();
-        CommandContext<T> context = this.contextProvider.getContextInstance(id);
+    // The handle for the player's current state, without creating a context
+    private CommandMethodHandle getCurrentHandle(Player player) {
+        CommandContext<T> context = this.contextProvider.getContextInstance(player.getUniqueId());
 
         int state = context == null ? FragmentExecutionContext.DEFAULT_STATE : context.getData().getState();
-        CommandMethodHandle handle = this.handles.get(state);
-
-        return handle != null;
+        return this.handles.get(state);
     }
 
     @Override
     public void execute(CommandSender sender, List<String> arguments) throws Exception {
+        this.execute(sender, arguments.toArray(new String[arguments.size()]), 0);
+    }
+
+    @Override
+    public void execute(CommandSender sender, String[] command, int argStart) throws Exception {
         if (!(sender instanceof Player)) {
             super.sendBadCommandSender(sender, Player.class, sender);
             return;
         }
 
-        Player player = (Player) sender;
-        UUID id = player.getUniqueId();
+        UUID id = ((Player) sender).getUniqueId();
+        Lock lock = this.contextProvider.getLock(id);
+        if (lock == null) {
+            this.executeInState(sender, id, command, argStart, false);
+            return;
+        }
 
+        // Reading the state and running its fragment must not interleave with another command from the same player
+        lock.lock();
+        try {
+            this.executeInState(sender, id, command, argStart, true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void executeInState(CommandSender sender, UUID id, String[] command, int argStart, boolean locked) throws Exception {
         CommandContext<T> context = this.contextProvider.getOrCreateContextInstance(id);
 
-        CommandMethodHandle handle = this.handles.get(context.getData().getState());
+        int state = context.getData().getState();
+        CommandMethodHandle handle = this.handles.get(state);
+        if (handle == null && locked) {
+            // The state was checked before the lock was taken, another command of the player moved it since
+            sender.sendMessage(ChatColor.RED + "Cannot execute " + super.getCommand().toString() + " in your current state.");
+            return;
+        }
         if (handle == null) {
             // Bad state? Reset
             context.destroy();
 
-            throw new IllegalStateException(String.format("Sender %s was in state %d while executing %s.", id.toString(), context.getData().getState(), super.getCommand()));
+            throw new IllegalStateException(String.format("Sender %s was in state %d while executing %s.", id.toString(), state, super.getCommand()));
         }
 
+        // Only the running fragment's transitions are allowed while it runs
+        T data = context.getData();
+        StateTransitions previous = data.getTransitions();
+        if (this.transitions != null)
+            data.setTransitions(this.transitions.get(state));
+
         try {
-            handle.invoke(sender, arguments, Collections.singletonList(context.getData()));
+            handle.invoke(sender, command, argStart, data);
         } catch (BadCommandSenderException e) {
             super.sendBadCommandSenderHelp(sender, handle, e);
         } catch (ArgumentCountException e) {
             super.sendBadArgumentCountHelp(sender, handle, e);
         } catch (BadArgumentException e) {
             super.sendBadArgumentHelp(sender, handle, e);
+        } finally {
+            data.setTransitions(previous);
         } // All others are ,ust be handled by the caller
     }
 
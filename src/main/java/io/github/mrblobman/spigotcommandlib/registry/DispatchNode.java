@@ -0,0 +1,95 @@
+package io.github.mrblobman.spigotcommandlib.registry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * A read only view of a {@link SubCommand} compiled for dispatching. Every
+ * name and alias of every child maps directly to the child's node.
+ */
+public final class DispatchNode {
+    private final SubCommand command;
+    private final CommandExecutor executor;
+    private final NameTable<DispatchNode> children;
+    private final int index;
+    // The range of the executors under this node in the tree's help index
+    private final int helpStart;
+    private final int helpEnd;
+
+    DispatchNode(SubCommand command, CommandExecutor executor, NameTable<DispatchNode> children, int index, int helpStart, int helpEnd) {
+        this.command = command;
+        this.executor = executor;
+        this.children = children;
+        this.index = index;
+        this.helpStart = helpStart;
+        this.helpEnd = helpEnd;
+    }
+
+    /**
+     * @return the sub command this node was compiled from
+     */
+    public SubCommand getCommand() {
+        return this.command;
+    }
+
+    /**
+     * @return the executor triggered by this node or null if this node only
+     *         leads to other commands
+     */
+    public CommandExecutor getExecutor() {
+        return this.executor;
+    }
+
+    /**
+     * Find the child invoked by {@code name}. The lookup is case insensitive
+     * and matches names as well as aliases.
+     *
+     * @param name the name or alias of the child
+     *
+     * @return the child node or null if no child is invoked by {@code name}
+     */
+    public DispatchNode getChild(String name) {
+        return this.children.get(name);
+    }
+
+    /**
+     * Find the names and aliases of the children that start with {@code prefix}, ignoring case.
+     * Only the children matching the prefix are visited.
+     *
+     * @param prefix the start of the name
+     * @param filter the children to include
+     * @param limit  the maximum number of names to find. See: {@link CommandLib#NO_LIMIT}
+     *
+     * @return the names sorted ignoring case
+     */
+    List<String> completeChild(String prefix, Predicate<DispatchNode> filter, int limit) {
+        int start = this.children.prefixStart(prefix);
+        int end = this.children.prefixEnd(prefix);
+        if (start == end)
+            return Collections.emptyList();
+
+        List<String> names = new ArrayList<>(limit == CommandLib.NO_LIMIT ? end - start : Math.min(limit, end - start));
+        for (int i = start; i < end && (limit == CommandLib.NO_LIMIT || names.size() < limit); i++)
+            if (filter.test(this.children.getSortedValue(i)))
+                names.add(this.children.getSortedKey(i));
+        return names;
+    }
+
+    /**
+     * @return the index of this node in its tree, the indexes of a tree's nodes are dense
+     *         and start at 0
+     */
+    int getIndex() {
+        return this.index;
+    }
+
+    int getHelpStart() {
+        return this.helpStart;
+    }
+
+    int getHelpEnd() {
+        return this.helpEnd;
+    }
+}
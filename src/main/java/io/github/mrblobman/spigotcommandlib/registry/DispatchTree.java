@@ -0,0 +1,222 @@
+package io.github.mrblobman.spigotcommandlib.registry;
+
+import org.bukkit.permissions.Permissible;
+
+import java.util.*;
+
+/**
+ * An immutable snapshot of the registered command tree. It is compiled once
+ * after registration and walked on every dispatch instead of the mutable
+ * {@link SubCommand} graph.
+ */
+final class DispatchTree {
+    static final DispatchTree EMPTY = new DispatchTree(new NameTable<>(Collections.emptyMap()), new DispatchNode[0], new int[0], new CommandExecutor[0], new int[0]);
+
+    private static final Comparator<SubCommand> BY_NAME = Comparator.comparing(SubCommand::getName, String.CASE_INSENSITIVE_ORDER);
+
+    /**
+     * Compile the tree rooted at the given base commands.
+     *
+     * @param baseCommands the base commands keyed by each of their names and aliases
+     * @param executors    the executors keyed by the sub command that triggers them
+     *
+     * @return the compiled tree
+     */
+    static DispatchTree compile(Map<String, SubCommand> baseCommands, Map<SubCommand, CommandExecutor> executors) {
+        Compilation compilation = new Compilation(executors);
+        Map<SubCommand, DispatchNode> compiled = new IdentityHashMap<>();
+
+        // Compile in help order, see #getHelp(BitSet)
+        baseCommands.values().stream()
+                .distinct()
+                .sorted(BY_NAME)
+                .forEachOrdered(base -> compiled.put(base, compileNode(base, -1, compilation)));
+
+        Map<String, DispatchNode> bases = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        baseCommands.forEach((name, base) -> bases.putIfAbsent(name, compiled.get(base)));
+
+        return new DispatchTree(new NameTable<>(bases),
+                compilation.nodes.toArray(new DispatchNode[compilation.nodes.size()]),
+                compilation.parents.stream().mapToInt(Integer::intValue).toArray(),
+                compilation.help.toArray(new CommandExecutor[compilation.help.size()]),
+                compilation.helpNodes.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private static DispatchNode compileNode(SubCommand command, int parent, Compilation compilation) {
+        CommandExecutor executor = compilation.executors.get(command);
+
+        // Number the nodes before their children so a parent's index is always smaller
+        int index = compilation.nodes.size();
+        compilation.nodes.add(null);
+        compilation.parents.add(parent);
+
+        int helpStart = compilation.help.size();
+        if (executor != null) {
+            compilation.help.add(executor);
+            compilation.helpNodes.add(index);
+        }
+
+        Map<SubCommand, DispatchNode> nodes = new IdentityHashMap<>();
+        command.getChildren().stream()
+                .sorted(BY_NAME)
+                .forEachOrdered(child -> nodes.put(child, compileNode(child, index, compilation)));
+
+        // Names take priority over aliases, and earlier children over later ones
+        Map<String, DispatchNode> children = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (SubCommand child : command.getChildren())
+            children.putIfAbsent(child.getName(), nodes.get(child));
+
+        for (SubCommand child : command.getChildren())
+            for (String alias : child.getAliases())
+                children.putIfAbsent(alias, nodes.get(child));
+
+        DispatchNode node = new DispatchNode(command, executor, new NameTable<>(children), index, helpStart, compilation.help.size());
+        compilation.nodes.set(index, node);
+        return node;
+    }
+
+    private static final class Compilation {
+        private final Map<SubCommand, CommandExecutor> executors;
+        private final List<DispatchNode> nodes = new ArrayList<>();
+        private final List<Integer> parents = new ArrayList<>();
+        private final List<CommandExecutor> help = new ArrayList<>();
+        private final List<Integer> helpNodes = new ArrayList<>();
+
+        private Compilation(Map<SubCommand, CommandExecutor> executors) {
+            this.executors = executors;
+        }
+    }
+
+    private final NameTable<DispatchNode> baseCommands;
+    // Every node by its index, parents come before their children
+    private final DispatchNode[] nodes;
+    // The index of each node's parent or -1 for base commands
+    private final int[] parents;
+    // Every executor ordered depth first with siblings sorted by name. This is the order of the
+    // sorted executable strings and puts each node's executors in one range.
+    private final CommandExecutor[] help;
+    // The index of the node triggering each executor in the help index
+    private final int[] helpNodes;
+
+    private DispatchTree(NameTable<DispatchNode> baseCommands, DispatchNode[] nodes, int[] parents, CommandExecutor[] help, int[] helpNodes) {
+        this.baseCommands = baseCommands;
+        this.nodes = nodes;
+        this.parents = parents;
+        this.help = help;
+        this.helpNodes = helpNodes;
+    }
+
+    /**
+     * Find the base command invoked by {@code name}, ignoring case.
+     *
+     * @param name the name or alias of the base command
+     *
+     * @return the base command's node or null if no base command is invoked by {@code name}
+     */
+    DispatchNode getBaseCommand(String name) {
+        return this.baseCommands.get(name);
+    }
+
+    /**
+     * Walk the tree along every part of {@code command}.
+     *
+     * @param command the command split into parts
+     *
+     * @return the node for the full command or null if some part does not match
+     */
+    DispatchNode resolve(String[] command) {
+        return command == null ? null : this.resolve(command, command.length);
+    }
+
+    /**
+     * Walk the tree along the first {@code length} parts of {@code command}.
+     *
+     * @param command the command split into parts
+     * @param length  the number of parts to walk
+     *
+     * @return the node for the parts or null if some part does not match
+     */
+    DispatchNode resolve(String[] command, int length) {
+        if (length < 1) return null;
+        DispatchNode node = this.getBaseCommand(command[0]);
+        for (int i = 1; node != null && i < length; i++)
+            node = node.getChild(command[i]);
+        return node;
+    }
+
+    /**
+     * Find every node that {@code caller} has permission to execute. Each node is checked
+     * once, against its own permissions and the bit of its parent.
+     *
+     * @param caller the caller executing the commands
+     *
+     * @return the indexes of the nodes the caller may execute, see {@link DispatchNode#getIndex()}
+     */
+    BitSet getExecutable(Permissible caller) {
+        BitSet executable = new BitSet(this.nodes.length);
+        for (int i = 0; i < this.nodes.length; i++) {
+            int parent = this.parents[i];
+            if ((parent < 0 || executable.get(parent)) && this.nodes[i].getCommand().isPermitted(caller))
+                executable.set(i);
+        }
+        return executable;
+    }
+
+    /**
+     * Find the nodes under {@code node} that {@code caller} has permission to execute for
+     * {@link #getHelp(DispatchNode, BitSet)}. Only the super commands of the node and the
+     * part of its subtree up to its last executor are checked, the other bits are left clear.
+     *
+     * @param caller the caller executing the commands
+     * @param node   a node in this tree
+     *
+     * @return the indexes of the nodes under {@code node} the caller may execute
+     */
+    BitSet getExecutable(Permissible caller, DispatchNode node) {
+        BitSet executable = new BitSet(this.nodes.length);
+        if (node.getHelpStart() == node.getHelpEnd())
+            return executable;
+
+        int start = node.getIndex();
+        for (int parent = this.parents[start]; parent >= 0; parent = this.parents[parent])
+            if (!this.nodes[parent].getCommand().isPermitted(caller))
+                return executable;
+
+        // The subtree is numbered after the node and its executors are in the same order
+        int end = this.helpNodes[node.getHelpEnd() - 1];
+        for (int i = start; i <= end; i++) {
+            if ((i == start || executable.get(this.parents[i])) && this.nodes[i].getCommand().isPermitted(caller))
+                executable.set(i);
+        }
+        return executable;
+    }
+
+    /**
+     * @param executable the nodes to include, see {@link #getExecutable(Permissible)}
+     *
+     * @return the executors of the executable nodes in the tree, sorted by their commands
+     */
+    List<CommandExecutor> getHelp(BitSet executable) {
+        return this.getHelp(0, this.help.length, executable);
+    }
+
+    /**
+     * Get the executors of {@code node} and all of its descendants without searching or sorting.
+     *
+     * @param node       a node in this tree
+     * @param executable the nodes to include, see {@link #getExecutable(Permissible)}
+     *
+     * @return the executors of the executable nodes under the node, sorted by their commands
+     */
+    List<CommandExecutor> getHelp(DispatchNode node, BitSet executable) {
+        return this.getHelp(node.getHelpStart(), node.getHelpEnd(), executable);
+    }
+
+    private List<CommandExecutor> getHelp(int from, int to, BitSet executable) {
+        List<CommandExecutor> help = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++)
+            if (executable.get(this.helpNodes[i]))
+                help.add(this.help[i]);
+        return help;
+    }
+}
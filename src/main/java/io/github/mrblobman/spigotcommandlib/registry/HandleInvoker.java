@@ -28,7 +28,6 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
 import io.github.mrblobman.spigotcommandlib.args.CommandParameter;
-import io.github.mrblobman.spigotcommandlib.args.ParseException;
 import net.md_5.bungee.api.ChatColor;
 import net.md_5.bungee.api.chat.*;
 import org.bukkit.command.CommandSender;
@@ -107,13 +106,9 @@ public class HandleInvoker implements Invoker {
         // Parse all required
         for (int i = 0; i < minArgsRequired; i++) {
             CommandParameter<?> cmdParam = this.commandParameters.get(i);
-            if (cmdParam.getFormatter().canBeParsedFrom(args[i])) {
-                try {
-                    params.add(cmdParam.getFormatter().parse(args[i]));
-                } catch (ParseException e) {
-                    sender.sendMessage(ChatColor.RED + "Invalid argument value " + args[i] + ". " + e.getLocalizedMessage());
-                    return null;
-                }
+            Object arg = cmdParam.getFormatter().tryParse(args[i]);
+            if (arg != null) {
+                params.add(arg);
             } else {
                 // Invalid type param
                 sendUsage(sender);
@@ -136,13 +131,9 @@ public class HandleInvoker implements Invoker {
                 }
                 continue;
             }
-            if (cmdParam.getFormatter().canBeParsedFrom(args[argIndex])) {
-                try {
-                    params.add(cmdParam.getFormatter().parse(args[argIndex]));
-                } catch (ParseException e) {
-                    sender.sendMessage(ChatColor.RED + "Invalid argument value " + args[argIndex] + ". " + e.getLocalizedMessage());
-                    return null;
-                }
+            Object arg = cmdParam.getFormatter().tryParse(args[argIndex]);
+            if (arg != null) {
+                params.add(arg);
             } else {
                 //Invalid type param
                 sendUsage(sender);
@@ -165,8 +156,9 @@ public class HandleInvoker implements Invoker {
                 List<Object> varArgs = lastArg.getFormatter().createTypedList();
                 //Handle varargs
                 for (/*argIndex*/; argIndex < args.length; argIndex++) {
-                    if (lastArg.getFormatter().canBeParsedFrom(args[argIndex])) {
-                        varArgs.add(lastArg.getFormatter().parse(args[argIndex]));
+                    Object arg = lastArg.getFormatter().tryParse(args[argIndex]);
+                    if (arg != null) {
+                        varArgs.add(arg);
                     } else {
                         //Invalid type param
                         sendUsage(sender);
@@ -0,0 +1,116 @@
+package io.github.mrblobman.spigotcommandlib.registry;
+
+import io.github.mrblobman.spigotcommandlib.util.SearchUtils;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * An immutable, open addressed table from command names to values. Keys
+ * are compared ignoring case (with the same rules as {@link String#equalsIgnoreCase(String)})
+ * and lookups do not allocate.
+ * <p>
+ * The keys are also kept sorted by {@link String#CASE_INSENSITIVE_ORDER} so that all keys
+ * starting with a prefix can be found as one range with a binary search.
+ *
+ * @param <V> the type of the values in the table
+ */
+final class NameTable<V> {
+    private final String[] keys;
+    private final Object[] values;
+    private final int mask;
+    private final String[] sortedKeys;
+    private final Object[] sortedValues;
+
+    /**
+     * Build a table containing all of the {@code entries}. The keys in
+     * {@code entries} must already be unique ignoring case.
+     *
+     * @param entries the entries to put in the table
+     */
+    NameTable(Map<String, V> entries) {
+        // Keep the load factor at or below 0.5 so probe sequences stay short
+        int capacity = Integer.highestOneBit(Math.max(1, entries.size()) * 2 - 1) << 1;
+
+        this.keys = new String[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+
+        for (Map.Entry<String, V> entry : entries.entrySet()) {
+            int i = hash(entry.getKey()) & this.mask;
+            while (this.keys[i] != null)
+                i = (i + 1) & this.mask;
+
+            this.keys[i] = entry.getKey();
+            this.values[i] = entry.getValue();
+        }
+
+        this.sortedKeys = entries.keySet().toArray(new String[entries.size()]);
+        Arrays.sort(this.sortedKeys, String.CASE_INSENSITIVE_ORDER);
+        this.sortedValues = new Object[this.sortedKeys.length];
+        for (int i = 0; i < this.sortedKeys.length; i++)
+            this.sortedValues[i] = entries.get(this.sortedKeys[i]);
+    }
+
+    /**
+     * Lookup the value bound to {@code name}, ignoring case.
+     *
+     * @param name the name to lookup
+     *
+     * @return the value bound to the name or null if there is no such value.
+     */
+    @SuppressWarnings("unchecked")
+    V get(String name) {
+        int len = name.length();
+        int i = hash(name) & this.mask;
+
+        String key;
+        while ((key = this.keys[i]) != null) {
+            if (key.length() == len && key.regionMatches(true, 0, name, 0, len))
+                return (V) this.values[i];
+            i = (i + 1) & this.mask;
+        }
+
+        return null;
+    }
+
+    /**
+     * Find the first key, in sorted order, that starts with {@code prefix} ignoring case.
+     * The keys with the prefix are the indexes from this one up to {@link #prefixEnd(String)}.
+     *
+     * @param prefix the prefix to search for
+     *
+     * @return the index of the first key with the prefix, in sorted order
+     */
+    int prefixStart(String prefix) {
+        return SearchUtils.prefixStart(this.sortedKeys, prefix);
+    }
+
+    /**
+     * @param prefix the prefix to search for
+     *
+     * @return the index after the last key with the prefix, in sorted order
+     *
+     * @see #prefixStart(String)
+     */
+    int prefixEnd(String prefix) {
+        return SearchUtils.prefixEnd(this.sortedKeys, prefix);
+    }
+
+    String getSortedKey(int index) {
+        return this.sortedKeys[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    V getSortedValue(int index) {
+        return (V) this.sortedValues[index];
+    }
+
+    private static int hash(String name) {
+        int h = 0;
+        for (int i = 0; i < name.length(); i++)
+            // Fold the case the same way regionMatches(true, ...) does
+            h = 31 * h + Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,124 @@
+package io.github.mrblobman.spigotcommandlib.registry;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which commands each player may execute as one bit per {@link DispatchNode} of
+ * the current {@link DispatchTree}. The bits are computed when the player joins (or on first
+ * use) and tested by dispatch, help and tab completion instead of walking the permissions
+ * of every super command.
+ * <p>
+ * Bukkit does not announce permission changes so they have to be reported through
+ * {@link CommandLib#invalidatePermissions(Player)}.
+ */
+public class PermissionCache implements Listener {
+    private final CommandLib lib;
+    private final Map<UUID, Entry> executable = new ConcurrentHashMap<>();
+    private volatile boolean enabled;
+
+    PermissionCache(CommandLib lib) {
+        this.lib = lib;
+        Bukkit.getPluginManager().registerEvents(this, lib.getHook());
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled)
+            this.executable.clear();
+    }
+
+    /**
+     * Get the nodes of {@code tree} that the {@code player} may execute, computing them
+     * if they are not cached for this tree.
+     *
+     * @param player the player executing the commands
+     * @param tree   the tree the commands are in
+     *
+     * @return the indexes of the executable nodes. The set must not be modified.
+     */
+    BitSet getExecutable(Player player, DispatchTree tree) {
+        Entry entry = this.executable.get(player.getUniqueId());
+        // A recompiled tree numbers its nodes differently
+        if (entry == null || entry.tree != tree) {
+            entry = new Entry(tree, tree.getExecutable(player));
+            if (this.enabled)
+                this.executable.put(player.getUniqueId(), entry);
+        }
+        return entry.executable;
+    }
+
+    /**
+     * Get the nodes of {@code tree} that the player may execute without computing them.
+     * Permissions may only be checked on the main thread, this is safe to call from any thread.
+     *
+     * @param id   the player's unique id
+     * @param tree the tree the commands are in
+     *
+     * @return the indexes of the executable nodes or null if they are not cached for this tree.
+     *         The set must not be modified.
+     */
+    BitSet getCachedExecutable(UUID id, DispatchTree tree) {
+        Entry entry = this.executable.get(id);
+        return entry == null || entry.tree != tree ? null : entry.executable;
+    }
+
+    /**
+     * Forget the commands the player may execute so they are computed again on next use.
+     *
+     * @param id the player's unique id
+     */
+    public void invalidate(UUID id) {
+        this.executable.remove(id);
+    }
+
+    /**
+     * Forget the commands every player may execute.
+     */
+    public void invalidateAll() {
+        this.executable.clear();
+    }
+
+    // Late so that permission plugins have set up the player first
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onJoin(PlayerJoinEvent event) {
+        if (this.enabled)
+            this.getExecutable(event.getPlayer(), this.lib.getDispatchTree());
+    }
+
+    // Permissions are commonly granted per world
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onChangeWorld(PlayerChangedWorldEvent event) {
+        this.invalidate(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onQuit(PlayerQuitEvent event) {
+        this.invalidate(event.getPlayer().getUniqueId());
+    }
+
+    private static final class Entry {
+        private final DispatchTree tree;
+        private final BitSet executable;
+
+        private Entry(DispatchTree tree, BitSet executable) {
+            this.tree = tree;
+            this.executable = executable;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package io.github.mrblobman.spigotcommandlib.registry;
+
+import net.md_5.bungee.api.ChatColor;
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+
+/**
+ * Handles commands for a {@link CommandLib} straight from the raw message in
+ * the {@link PlayerCommandPreprocessEvent}. The message is split by slicing the
+ * original string, skipping Bukkit's split on whitespace and command map lookup.
+ */
+public class RawCommandInterceptor implements Listener {
+    private final CommandLib lib;
+    private boolean enabled;
+
+    RawCommandInterceptor(CommandLib lib) {
+        this.lib = lib;
+        Bukkit.getPluginManager().registerEvents(this, lib.getHook());
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    // Run late so other plugins can still cancel or rewrite the command first
+    @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+    private void onCommandPreprocess(PlayerCommandPreprocessEvent event) {
+        if (!this.enabled)
+            return;
+
+        String message = event.getMessage();
+        if (message.length() < 2 || message.charAt(0) != '/')
+            return;
+
+        int labelEnd = message.indexOf(' ');
+        if (labelEnd < 0)
+            labelEnd = message.length();
+
+        DispatchNode base = this.lib.getInterceptedBaseCommand(message.substring(1, labelEnd));
+        if (base == null)
+            return;
+
+        event.setCancelled(true);
+
+        if (!this.lib.isWithinLimits(message, 1)) {
+            event.getPlayer().sendMessage(ChatColor.RED + "That command is too long.");
+            return;
+        }
+
+        this.lib.dispatch(event.getPlayer(), CommandTokenizer.tokenize(base.getCommand().getName(), message, labelEnd));
+    }
+}
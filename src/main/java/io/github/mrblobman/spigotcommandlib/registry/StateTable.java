@@ -0,0 +1,68 @@
+package io.github.mrblobman.spigotcommandlib.registry;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * An immutable table from fragment states to values. States are usually small counters
+ * starting at {@link io.github.mrblobman.spigotcommandlib.FragmentExecutionContext#DEFAULT_STATE}
+ * so they index an array directly. Negative and very large states are kept sorted in a
+ * second pair of arrays and binary searched instead. Lookups never box the state.
+ *
+ * @param <V> the type of the values in the table
+ */
+final class StateTable<V> {
+    // The largest state put in the array. A larger state would waste most of the array.
+    private static final int MAX_DENSE_STATE = 1023;
+
+    private final Object[] dense;
+    private final int[] sparseStates;
+    private final Object[] sparseValues;
+
+    /**
+     * Build a table containing all of the {@code entries}.
+     *
+     * @param entries the entries to put in the table
+     */
+    StateTable(Map<Integer, V> entries) {
+        int denseLength = 0;
+        int sparseCount = 0;
+        for (int state : entries.keySet()) {
+            if (state >= 0 && state <= MAX_DENSE_STATE)
+                denseLength = Math.max(denseLength, state + 1);
+            else
+                sparseCount++;
+        }
+
+        this.dense = new Object[denseLength];
+        this.sparseStates = new int[sparseCount];
+        this.sparseValues = new Object[sparseCount];
+
+        int i = 0;
+        for (Map.Entry<Integer, V> entry : entries.entrySet()) {
+            int state = entry.getKey();
+            if (state >= 0 && state < denseLength)
+                this.dense[state] = entry.getValue();
+            else
+                this.sparseStates[i++] = state;
+        }
+
+        Arrays.sort(this.sparseStates);
+        for (i = 0; i < sparseCount; i++)
+            this.sparseValues[i] = entries.get(this.sparseStates[i]);
+    }
+
+    /**
+     * @param state the state to look up
+     *
+     * @return the value for the {@code state} or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    V get(int state) {
+        if (state >= 0 && state < this.dense.length)
+            return (V) this.dense[state];
+
+        int i = Arrays.binarySearch(this.sparseStates, state);
+        return i < 0 ? null : (V) this.sparseValues[i];
+    }
+}
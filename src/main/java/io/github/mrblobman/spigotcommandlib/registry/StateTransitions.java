@@ -0,0 +1,34 @@
+package io.github.mrblobman.spigotcommandlib.registry;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The states that one fragment may move its context to, as declared in
+ * {@link io.github.mrblobman.spigotcommandlib.FragmentedCommandHandle#transitions()}.
+ * The targets are kept in a {@link StateTable} so a change is checked with a single lookup.
+ */
+public final class StateTransitions {
+    private final StateTable<Boolean> targets;
+
+    /**
+     * @param targets the states the fragment may move to
+     */
+    StateTransitions(int[] targets) {
+        Map<Integer, Boolean> allowed = new HashMap<>();
+        for (int target : targets)
+            allowed.put(target, Boolean.TRUE);
+        this.targets = new StateTable<>(allowed);
+    }
+
+    /**
+     * @param from the current state
+     * @param to   the new state
+     *
+     * @return true iff the fragment may move the context from {@code from} to {@code to}.
+     *         Staying in the same state is always allowed.
+     */
+    public boolean isAllowed(int from, int to) {
+        return from == to || this.targets.get(to) != null;
+    }
+}
@@ -33,6 +33,9 @@ public class SubCommand implements Comparable<SubCommand> {
     private final String name;
 
     private final Set<String> permissions;
+    // The permissions of this command and all super commands, from the base down. The caller
+    // needs one permission of each group. See #compilePermissionChain()
+    private volatile String[][] permissionChain;
     private final List<String> aliases;
 
     private final SubCommand superCommand;
@@ -56,6 +59,7 @@ public class SubCommand implements Comparable<SubCommand> {
 
         this.superCommand = superCommand;
         this.length = superCommand != null ? superCommand.length + 1 : 1;
+        this.permissionChain = this.compilePermissionChain();
 
         this.allNames = new LinkedHashSet<>();
         this.allNames.add(this.name.toLowerCase());
@@ -85,16 +89,65 @@ public class SubCommand implements Comparable<SubCommand> {
      * @return true iff the called has permission to execute this and all super commands.
      */
     public boolean canBeExecutedBy(Permissible caller) {
-        return (this.isBase() || this.superCommand.canBeExecutedBy(caller))
-                && this.permissions.stream().anyMatch(caller::hasPermission);
+        groups:
+        for (String[] group : this.permissionChain) {
+            for (String permission : group)
+                if (caller.hasPermission(permission))
+                    continue groups;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return true iff the caller has one of the permissions of this command, ignoring the super commands.
+     */
+    boolean isPermitted(Permissible caller) {
+        for (String permission : this.permissions)
+            if (permission.equals(CommandLib.NO_PERMISSION) || caller.hasPermission(permission))
+                return true;
+        return false;
     }
 
     public void addPermission(String permission) {
-        this.permissions.add(permission);
+        if (this.permissions.add(permission))
+            this.updatePermissionChain();
     }
 
     public boolean removePermission(String permission) {
-        return this.permissions.remove(permission);
+        if (!this.permissions.remove(permission))
+            return false;
+        this.updatePermissionChain();
+        return true;
+    }
+
+    // Every sub command inherits the chain so they are updated as well
+    private void updatePermissionChain() {
+        this.permissionChain = this.compilePermissionChain();
+        this.subCommands.values().forEach(SubCommand::updatePermissionChain);
+    }
+
+    /**
+     * Build the permission groups a caller must satisfy to execute this command. Groups
+     * containing {@link CommandLib#NO_PERMISSION} are always satisfied and are left out, as
+     * is any group implied by another (a group is implied by each of its subsets).
+     */
+    private String[][] compilePermissionChain() {
+        String[][] inherited = this.isBase() ? new String[0][] : this.superCommand.permissionChain;
+        if (this.permissions.contains(CommandLib.NO_PERMISSION))
+            return inherited;
+
+        for (String[] group : inherited)
+            if (this.permissions.containsAll(Arrays.asList(group)))
+                return inherited;
+
+        List<String> own = new ArrayList<>(this.permissions);
+        List<String[]> chain = new ArrayList<>(inherited.length + 1);
+        for (String[] group : inherited)
+            if (!Arrays.asList(group).containsAll(own))
+                chain.add(group);
+        chain.add(own.toArray(new String[own.size()]));
+        return chain.toArray(new String[chain.size()][]);
     }
 
     public SubCommand getSubCommand(String name) {
@@ -115,6 +168,10 @@ public class SubCommand implements Comparable<SubCommand> {
         return new ArrayList<>(this.subCommands.keySet());
     }
 
+    Collection<SubCommand> getChildren() {
+        return Collections.unmodifiableCollection(this.subCommands.values());
+    }
+
     public void addSubCommand(SubCommand cmd) {
         this.subCommands.put(cmd.getName().toLowerCase(), cmd);
     }
@@ -0,0 +1,72 @@
+package io.github.mrblobman.spigotcommandlib.util;
+
+/**
+ * Prefix searches over arrays of strings sorted by {@link String#CASE_INSENSITIVE_ORDER}.
+ * The strings starting with a prefix, ignoring case, are always one contiguous range of
+ * such an array.
+ */
+public class SearchUtils {
+
+    /**
+     * @param sorted the strings sorted by {@link String#CASE_INSENSITIVE_ORDER}
+     * @param prefix the prefix to search for
+     *
+     * @return the index of the first string starting with {@code prefix} ignoring case
+     */
+    public static int prefixStart(String[] sorted, String prefix) {
+        return search(sorted, prefix, false);
+    }
+
+    /**
+     * @param sorted the strings sorted by {@link String#CASE_INSENSITIVE_ORDER}
+     * @param prefix the prefix to search for
+     *
+     * @return the index after the last string starting with {@code prefix} ignoring case
+     */
+    public static int prefixEnd(String[] sorted, String prefix) {
+        return search(sorted, prefix, true);
+    }
+
+    /**
+     * @return true iff {@code s} starts with {@code prefix} ignoring case
+     */
+    public static boolean startsWithIgnoreCase(String s, String prefix) {
+        return s.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    // The first index whose string is after the prefix, or at or after the prefix unless inclusive
+    private static int search(String[] sorted, String prefix, boolean inclusive) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int cmp = comparePrefix(sorted[mid], prefix);
+            if (cmp < 0 || (inclusive && cmp == 0))
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    // Compare the start of s to the prefix with the rules of String.CASE_INSENSITIVE_ORDER,
+    // 0 if s starts with the prefix
+    private static int comparePrefix(String s, String prefix) {
+        int len = Math.min(s.length(), prefix.length());
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            char p = prefix.charAt(i);
+            if (c != p) {
+                c = Character.toUpperCase(c);
+                p = Character.toUpperCase(p);
+                if (c != p) {
+                    c = Character.toLowerCase(c);
+                    p = Character.toLowerCase(p);
+                    if (c != p)
+                        return c - p;
+                }
+            }
+        }
+        return s.length() < prefix.length() ? -1 : 0;
+    }
+}
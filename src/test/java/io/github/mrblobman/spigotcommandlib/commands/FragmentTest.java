@@ -49,7 +49,7 @@ public class FragmentTest implements FragmentedCommandHandler<FragmentTest.MyCon
         Bukkit.getPlayer(id).sendMessage("Please start the command again, you took too long.");
     }
 
-    @FragmentedCommandHandle(state = DEFAULT_STATE, description = "Set the location")
+    @FragmentedCommandHandle(state = DEFAULT_STATE, transitions = LOC_SET_STATE, description = "Set the location")
     private void setLocation(MyContext context, Player sender, @ArgDescription(optional = true) String name) {
         if (name != null) sender.sendMessage(name);
         context.location = new HashSet<>();
@@ -65,7 +65,7 @@ public class FragmentTest implements FragmentedCommandHandler<FragmentTest.MyCon
         sender.sendMessage("Location added.");
     }
 
-    @FragmentedCommandHandle(state = LOC_SET_STATE, description = "Set the block type to the block you are holding.")
+    @FragmentedCommandHandle(state = LOC_SET_STATE, transitions = DEFAULT_STATE, description = "Set the block type to the block you are holding.")
     private void setType(MyContext context, Player sender) {
         if (sender.getItemInHand() == null || !sender.getItemInHand().getType().isBlock()) {
             sender.sendMessage("You must be holding a block.");
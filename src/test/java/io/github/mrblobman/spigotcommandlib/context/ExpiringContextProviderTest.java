@@ -0,0 +1,116 @@
+package io.github.mrblobman.spigotcommandlib.context;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ExpiringContextProviderTest {
+    private static final UUID OWNER = UUID.randomUUID();
+
+    private final Map<UUID, AtomicInteger> cleanups = new ConcurrentHashMap<>();
+
+    private ExpiringContextProvider<Object> createProvider(long timeout, long tick, TimeUnit unit) {
+        return new ExpiringContextProvider<>(Object::new, timeout, tick, unit,
+                (owner, data) -> this.cleanups.computeIfAbsent(owner, id -> new AtomicInteger()).incrementAndGet());
+    }
+
+    private int getCleanups(UUID owner) {
+        AtomicInteger count = this.cleanups.get(owner);
+        return count == null ? 0 : count.get();
+    }
+
+    // Sweep the wheel until the time is up
+    private static void expireFor(ExpiringContextProvider<?> provider, long millis) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        while (System.nanoTime() < end) {
+            provider.expire();
+            Thread.sleep(1);
+        }
+        provider.expire();
+    }
+
+    @Test
+    public void expiresAfterTimeout() throws InterruptedException {
+        ExpiringContextProvider<Object> provider = this.createProvider(50, 1, TimeUnit.MILLISECONDS);
+        CommandContext<Object> context = provider.getOrCreateContextInstance(OWNER);
+
+        provider.expire();
+        assertSame(context, provider.getContextInstance(OWNER));
+        assertEquals(0, this.getCleanups(OWNER));
+
+        expireFor(provider, 100);
+        assertNull(provider.getContextInstance(OWNER));
+        assertEquals(1, this.getCleanups(OWNER));
+
+        // A new context is created on the next use
+        assertNotSame(context, provider.getOrCreateContextInstance(OWNER));
+    }
+
+    @Test
+    public void useDelaysExpiry() throws InterruptedException {
+        ExpiringContextProvider<Object> provider = this.createProvider(50, 1, TimeUnit.MILLISECONDS);
+        CommandContext<Object> context = provider.getOrCreateContextInstance(OWNER);
+
+        for (int i = 0; i < 10; i++) {
+            expireFor(provider, 20);
+            assertSame(context, provider.getOrCreateContextInstance(OWNER));
+        }
+        assertEquals(0, this.getCleanups(OWNER));
+
+        expireFor(provider, 100);
+        assertNull(provider.getContextInstance(OWNER));
+        assertEquals(1, this.getCleanups(OWNER));
+    }
+
+    @Test
+    public void destroyCleansUpOnce() throws InterruptedException {
+        ExpiringContextProvider<Object> provider = this.createProvider(50, 1, TimeUnit.MILLISECONDS);
+        provider.getOrCreateContextInstance(OWNER).destroy();
+        assertNull(provider.getContextInstance(OWNER));
+        assertEquals(1, this.getCleanups(OWNER));
+
+        // The wheel drops the destroyed context
+        expireFor(provider, 100);
+        assertEquals(1, this.getCleanups(OWNER));
+    }
+
+    @Test
+    public void destroyRacingExpiryCleansUpOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 2000; i++) {
+                UUID owner = UUID.randomUUID();
+                ExpiringContextProvider<Object> provider = this.createProvider(1, 1, TimeUnit.MICROSECONDS);
+                CommandContext<Object> context = provider.getOrCreateContextInstance(owner);
+
+                // Let the context expire before both race to remove it
+                long due = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(5);
+                while (System.nanoTime() < due)
+                    Thread.yield();
+
+                CyclicBarrier barrier = new CyclicBarrier(2);
+                Future<?> destroy = executor.submit(() -> {
+                    barrier.await();
+                    context.destroy();
+                    return null;
+                });
+                Future<?> expire = executor.submit(() -> {
+                    barrier.await();
+                    provider.expire();
+                    return null;
+                });
+                destroy.get();
+                expire.get();
+
+                assertEquals(1, this.getCleanups(owner));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
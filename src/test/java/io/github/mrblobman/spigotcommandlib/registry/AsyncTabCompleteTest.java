@@ -0,0 +1,114 @@
+package io.github.mrblobman.spigotcommandlib.registry;
+
+import io.github.mrblobman.spigotcommandlib.SubCommandHandle;
+import io.github.mrblobman.spigotcommandlib.SubCommandHandler;
+import io.github.mrblobman.spigotcommandlib.args.ArgDescription;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class AsyncTabCompleteTest {
+    public static class Handler implements SubCommandHandler {
+        @SubCommandHandle(permission = "stub.alpha", description = "Alpha.")
+        private void alpha(CommandSender sender) {}
+
+        @SubCommandHandle(permission = "stub.beta", description = "Beta.")
+        private void beta(CommandSender sender) {}
+    }
+
+    public static class PlayerHandler implements SubCommandHandler {
+        @SubCommandHandle(permission = "stub.alpha", description = "Tell.")
+        private void tell(CommandSender sender, @ArgDescription(completePlayers = true) String target) {}
+    }
+
+    private CommandLib lib;
+    private Player player;
+    private ExecutorService asyncThread;
+
+    @Before
+    public void setUp() {
+        StubServer.install();
+        this.lib = new CommandLib(StubServer.createPlugin("AsyncTabCompleteTest"));
+        this.lib.registerSubCommandHandler(new Handler(), new String[]{ "stub" });
+        this.lib.registerSubCommandHandler(new PlayerHandler(), new String[]{ "msg" });
+        this.player = StubServer.createPlayer("Alex", "stub.alpha");
+        this.asyncThread = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        this.asyncThread.shutdownNow();
+    }
+
+    private List<String> completeAsync(String buffer) throws Exception {
+        return this.lib.tabCompleteAsync(this.player, buffer, this.asyncThread).get();
+    }
+
+    @Test
+    public void mainThreadChecksPermissions() {
+        assertEquals(Collections.singletonList("alpha"), this.lib.tabComplete(this.player, "/stub "));
+        assertEquals(Collections.singletonList("alpha"), this.lib.tabComplete(this.player, "/stub AL"));
+        assertEquals(Collections.emptyList(), this.lib.tabComplete(this.player, "/stub b"));
+    }
+
+    @Test
+    public void asyncWithoutPermissionCacheSuggestsNothing() throws Exception {
+        assertEquals(Collections.emptyList(), this.completeAsync("/stub "));
+        assertEquals(0, StubServer.getOffThreadPermissionChecks());
+    }
+
+    @Test
+    public void asyncUsesCachedPermissions() throws Exception {
+        this.lib.setCachePermissions(true);
+        // Computes the player's commands on the main thread
+        this.lib.tabComplete(this.player, "/stub ");
+
+        assertEquals(Collections.singletonList("alpha"), this.completeAsync("/stub "));
+        assertEquals(Collections.singletonList("alpha"), this.completeAsync("/stub a"));
+        assertEquals(Collections.emptyList(), this.completeAsync("/stub b"));
+        assertEquals(0, StubServer.getOffThreadPermissionChecks());
+    }
+
+    @Test
+    public void asyncAfterInvalidationSuggestsNothing() throws Exception {
+        this.lib.setCachePermissions(true);
+        this.lib.tabComplete(this.player, "/stub ");
+        this.lib.invalidatePermissions(this.player);
+
+        assertEquals(Collections.emptyList(), this.completeAsync("/stub "));
+        assertEquals(0, StubServer.getOffThreadPermissionChecks());
+    }
+
+    @Test
+    public void asyncIgnoresOtherLabels() throws Exception {
+        this.lib.setCachePermissions(true);
+        this.lib.tabComplete(this.player, "/stub ");
+
+        assertEquals(Collections.emptyList(), this.completeAsync("/other "));
+        assertEquals(Collections.emptyList(), this.completeAsync("/stub"));
+    }
+
+    @Test
+    public void asyncLeavesPlayersToTheMainThread() throws Exception {
+        this.lib.setCachePermissions(true);
+        this.lib.setTabCompleteInterval(1, TimeUnit.MINUTES);
+        this.lib.tabComplete(this.player, "/stub ");
+        StubServer.createPlayer("Alice");
+
+        assertEquals(Collections.emptyList(), this.completeAsync("/msg tell Al"));
+        assertEquals(0, StubServer.getOffThreadPlayerLookups());
+        // The empty result is not remembered for the main thread
+        assertEquals(Arrays.asList("Alex", "Alice"), this.lib.tabComplete(this.player, "/msg tell Al"));
+    }
+}
@@ -0,0 +1,102 @@
+package io.github.mrblobman.spigotcommandlib.registry;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Checks {@link CommandTokenizer} against the regex based splitter that it replaced.
+ */
+public class CommandTokenizerTest {
+    private static final Pattern ARG_PATTERN = Pattern.compile("(?:(['\"])(.*?)(?<!\\\\)(?>\\\\\\\\)*\\1|([^\\s]+))");
+
+    private static final char[] ALPHABET = { 'a', 'b', ' ', ' ', '"', '"', '\'', '\\', '\\', '\\', '\t', '\n' };
+    private static final int RUNS = 20000;
+
+    /**
+     * The parsing done by {@code BukkitInterceptorCommand} before the tokenizer.
+     */
+    private static String[] parseCommandString(String command, boolean appendExtraSpace) {
+        if (command.startsWith("/")) {
+            command = command.substring(1);
+        }
+        List<String> matches = new ArrayList<>();
+        Matcher m = ARG_PATTERN.matcher(command);
+        while (m.find()) {
+            if (m.group(2) != null) {
+                matches.add(m.group(2).replace("\\\"", "\""));
+            } else if (m.group(3) != null) {
+                matches.add(m.group(3).replace("\\\"", "\""));
+            }
+        }
+        String[] matchesArr = matches.toArray(new String[matches.size() + (appendExtraSpace ? 1 : 0)]);
+        if (appendExtraSpace) matchesArr[matchesArr.length - 1] = "";
+        return matchesArr;
+    }
+
+    private static String randomLine(Random random) {
+        StringBuilder line = new StringBuilder();
+        int length = random.nextInt(24);
+        for (int i = 0; i < length; i++) {
+            char c = ALPHABET[random.nextInt(ALPHABET.length)];
+            line.append(c);
+            // Runs of backslashes decide whether a quote is escaped
+            if (c == '\\' && random.nextInt(3) == 0) {
+                int run = random.nextInt(5);
+                for (int j = 0; j < run; j++)
+                    line.append('\\');
+            }
+        }
+        return line.toString();
+    }
+
+    @Test
+    public void examples() {
+        String[] lines = {
+                "",
+                "a b  c",
+                "\"a b\" c",
+                "'a \"b\"' c",
+                "\"a \\\" b\"",
+                "\"a\\\\\" b\"",
+                "\"a\\\\\\\" b\"",
+                "\"unclosed a b",
+                "'a\nb' c",
+                "a\"b\" \"c\"d"
+        };
+        for (String line : lines)
+            assertArrayEquals(line, parseCommandString("stub " + line, false), CommandTokenizer.tokenize("stub", line, 0));
+    }
+
+    @Test
+    public void rawLineMatchesRegex() {
+        Random random = new Random(0x5eed);
+        for (int i = 0; i < RUNS; i++) {
+            String line = randomLine(random);
+            boolean appendExtraSpace = random.nextBoolean();
+            String raw = "/stub " + line;
+            assertArrayEquals(raw, parseCommandString("stub " + line, appendExtraSpace),
+                    CommandTokenizer.tokenize("stub", raw, 6, appendExtraSpace));
+        }
+    }
+
+    @Test
+    public void bukkitArgsMatchRegex() {
+        Random random = new Random(0xa265);
+        for (int i = 0; i < RUNS; i++) {
+            String line = randomLine(random);
+            boolean appendExtraSpace = random.nextBoolean();
+            String label = random.nextBoolean() ? "/stub" : "stub";
+            // Bukkit splits the arguments on spaces, keeping empty ones
+            String[] args = line.isEmpty() ? new String[0] : line.split(" ", -1);
+            assertArrayEquals(label + " " + line, parseCommandString(label + " " + line, appendExtraSpace),
+                    CommandTokenizer.tokenize(label, args, appendExtraSpace));
+        }
+    }
+}
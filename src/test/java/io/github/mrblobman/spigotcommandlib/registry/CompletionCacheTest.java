@@ -0,0 +1,108 @@
+package io.github.mrblobman.spigotcommandlib.registry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CompletionCacheTest {
+    private static final UUID ID = UUID.randomUUID();
+
+    private CompletionCache cache;
+    private DispatchTree tree;
+    private DispatchNode node;
+
+    @Before
+    public void setUp() {
+        StubServer.install();
+        this.cache = new CompletionCache(new CommandLib(StubServer.createPlugin("CompletionCacheTest")));
+        this.cache.setInterval(1, TimeUnit.MINUTES);
+
+        SubCommand base = new SubCommand("stub", new String[0], CommandLib.NO_PERMISSION, null);
+        this.tree = DispatchTree.compile(Collections.singletonMap("stub", base), Collections.emptyMap());
+        this.node = this.tree.getBaseCommand("stub");
+    }
+
+    private void put(String prefix, int limit, String... completions) {
+        this.cache.put(ID, this.tree, this.node, 1, new String[]{ "stub", prefix }, Arrays.asList(completions), limit);
+    }
+
+    private List<String> get(String prefix) {
+        return this.cache.get(ID, this.tree, this.node, 1, new String[]{ "stub", prefix });
+    }
+
+    @Test
+    public void samePrefixIsRemembered() {
+        this.put("a", CommandLib.NO_LIMIT, "alpha", "Alps");
+        assertEquals(Arrays.asList("alpha", "Alps"), this.get("a"));
+        assertSame(this.get("a"), this.get("a"));
+    }
+
+    @Test
+    public void longerPrefixNarrowsACompleteMemo() {
+        this.put("a", CommandLib.NO_LIMIT, "alpha", "Alps", "apple");
+        assertEquals(Arrays.asList("alpha", "Alps"), this.get("AL"));
+        // The narrowed list is remembered for the next keystroke
+        assertEquals(Collections.singletonList("Alps"), this.get("alps"));
+        assertEquals(Collections.emptyList(), this.get("alpsx"));
+    }
+
+    @Test
+    public void limitedMemoIsNotNarrowed() {
+        this.put("a", 2, "alpha", "Alps");
+        assertNull(this.get("al"));
+        assertEquals(Arrays.asList("alpha", "Alps"), this.get("a"));
+
+        // Fewer completions than the limit means none were cut off
+        this.put("a", 3, "alpha", "Alps");
+        assertEquals(Collections.singletonList("Alps"), this.get("alps"));
+    }
+
+    @Test
+    public void otherPrefixesAreComputed() {
+        this.put("al", CommandLib.NO_LIMIT, "alpha", "Alps");
+        assertNull(this.get("a"));
+        assertNull(this.get("b"));
+        assertNull(this.get("ab"));
+    }
+
+    @Test
+    public void otherPartsAreComputed() {
+        this.put("a", CommandLib.NO_LIMIT, "alpha");
+        assertNull(this.cache.get(ID, this.tree, this.node, 1, new String[]{ "stub", "x", "a" }));
+        assertNull(this.cache.get(ID, this.tree, this.node, 2, new String[]{ "stub", "a" }));
+        assertNull(this.cache.get(UUID.randomUUID(), this.tree, this.node, 1, new String[]{ "stub", "a" }));
+        assertNull(this.cache.get(ID, DispatchTree.EMPTY, this.node, 1, new String[]{ "stub", "a" }));
+    }
+
+    @Test
+    public void memosExpire() throws InterruptedException {
+        this.cache.setInterval(1, TimeUnit.MILLISECONDS);
+        this.put("a", CommandLib.NO_LIMIT, "alpha");
+        Thread.sleep(5);
+        assertNull(this.get("a"));
+        assertNull(this.get("al"));
+    }
+
+    @Test
+    public void nothingIsRememberedWhenOff() {
+        this.cache.setInterval(0, TimeUnit.MILLISECONDS);
+        this.put("a", CommandLib.NO_LIMIT, "alpha");
+        assertNull(this.get("a"));
+    }
+
+    @Test
+    public void rememberedListsAreCopies() {
+        List<String> completions = new ArrayList<>(Arrays.asList("alpha", "Alps"));
+        this.cache.put(ID, this.tree, this.node, 1, new String[]{ "stub", "a" }, completions, CommandLib.NO_LIMIT);
+        completions.clear();
+        assertEquals(Arrays.asList("alpha", "Alps"), this.get("a"));
+    }
+}
@@ -0,0 +1,105 @@
+package io.github.mrblobman.spigotcommandlib.registry;
+
+import io.github.mrblobman.spigotcommandlib.FragmentExecutionContext;
+import io.github.mrblobman.spigotcommandlib.FragmentedCommandHandle;
+import io.github.mrblobman.spigotcommandlib.FragmentedCommandHandler;
+import org.bukkit.entity.Player;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs fragments of the same players from many threads at once with {@link CommandLib#setSerializeFragments(boolean)},
+ * which puts the {@link ContextSensitiveCommand}s behind a {@link io.github.mrblobman.spigotcommandlib.context.LockingContextProvider}.
+ */
+public class SerializedFragmentsTest {
+    private static final int THREADS = 16;
+    private static final int PLAYERS = 8;
+    private static final int COMMANDS_PER_THREAD = 400;
+
+    public static class CounterContext extends FragmentExecutionContext {
+        private int count;
+    }
+
+    // Each step reads the count and the state and writes both back
+    public static class Handler implements FragmentedCommandHandler<CounterContext> {
+        private final Map<UUID, CounterContext> contexts = new ConcurrentHashMap<>();
+
+        @Override
+        public void onCleanup(UUID id, CounterContext context) {}
+
+        @FragmentedCommandHandle(state = 0, transitions = 1, description = "Even step.")
+        private void step(CounterContext context, Player sender) {
+            this.increment(context, sender, 1);
+        }
+
+        @FragmentedCommandHandle(command = "step", state = 1, transitions = 0, description = "Odd step.")
+        private void oddStep(CounterContext context, Player sender) {
+            this.increment(context, sender, 0);
+        }
+
+        private void increment(CounterContext context, Player sender, int next) {
+            this.contexts.put(sender.getUniqueId(), context);
+            int count = context.count;
+            Thread.yield();
+            context.count = count + 1;
+            context.setState(next);
+        }
+    }
+
+    private CommandLib lib;
+    private Handler handler;
+    private List<Player> players;
+    private ExecutorService threads;
+
+    @Before
+    public void setUp() throws HandlerCompilationException {
+        StubServer.install();
+        this.lib = new CommandLib(StubServer.createPlugin("SerializedFragmentsTest"));
+        this.lib.setSerializeFragments(true);
+        this.handler = new Handler();
+        this.lib.registerFragmentedCommandHandler(this.handler, CommandLib.NO_PERMISSION, CommandLib.NO_TIMEOUT, CounterContext::new, "counter");
+
+        this.players = new ArrayList<>();
+        for (int i = 0; i < PLAYERS; i++)
+            this.players.add(StubServer.createPlayer("Player" + i));
+        this.threads = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        this.threads.shutdownNow();
+    }
+
+    @Test
+    public void noUpdatesAreLost() throws Exception {
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t;
+            futures.add(this.threads.submit(() -> {
+                start.await();
+                for (int i = 0; i < COMMANDS_PER_THREAD; i++)
+                    assertTrue(this.lib.execute(this.players.get((offset + i) % PLAYERS), new String[]{ "counter", "step" }));
+                return null;
+            }));
+        }
+        for (Future<?> future : futures)
+            future.get(1, TimeUnit.MINUTES);
+
+        int perPlayer = THREADS * COMMANDS_PER_THREAD / PLAYERS;
+        for (Player player : this.players) {
+            CounterContext context = this.handler.contexts.get(player.getUniqueId());
+            assertEquals(perPlayer, context.count);
+            assertEquals(perPlayer % 2, context.getState());
+        }
+    }
+}
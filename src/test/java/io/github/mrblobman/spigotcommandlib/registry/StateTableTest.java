@@ -0,0 +1,92 @@
+package io.github.mrblobman.spigotcommandlib.registry;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class StateTableTest {
+    private static final int RUNS = 2000;
+
+    @Test
+    public void empty() {
+        StateTable<String> table = new StateTable<>(new HashMap<>());
+        assertNull(table.get(0));
+        assertNull(table.get(-1));
+        assertNull(table.get(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void denseAndSparseStates() {
+        Map<Integer, String> entries = new HashMap<>();
+        entries.put(0, "default");
+        entries.put(3, "dense");
+        entries.put(1023, "last dense");
+        entries.put(1024, "first sparse");
+        entries.put(-1, "negative");
+        entries.put(Integer.MIN_VALUE, "min");
+        entries.put(Integer.MAX_VALUE, "max");
+
+        StateTable<String> table = new StateTable<>(entries);
+        for (Map.Entry<Integer, String> entry : entries.entrySet())
+            assertEquals(entry.getValue(), table.get(entry.getKey()));
+
+        // Missing states in the array, between and around the sparse states
+        assertNull(table.get(1));
+        assertNull(table.get(1022));
+        assertNull(table.get(1025));
+        assertNull(table.get(-2));
+        assertNull(table.get(Integer.MIN_VALUE + 1));
+        assertNull(table.get(Integer.MAX_VALUE - 1));
+    }
+
+    @Test
+    public void onlySparseStates() {
+        Map<Integer, String> entries = new HashMap<>();
+        entries.put(-5, "a");
+        entries.put(5000, "b");
+
+        StateTable<String> table = new StateTable<>(entries);
+        assertEquals("a", table.get(-5));
+        assertEquals("b", table.get(5000));
+        assertNull(table.get(0));
+        assertNull(table.get(4999));
+    }
+
+    @Test
+    public void matchesHashMap() {
+        Random random = new Random(0x57a7e);
+        for (int run = 0; run < RUNS; run++) {
+            Map<Integer, String> entries = new HashMap<>();
+            int size = random.nextInt(20);
+            for (int i = 0; i < size; i++)
+                entries.put(randomState(random), "v" + i);
+
+            StateTable<String> table = new StateTable<>(entries);
+            for (int i = 0; i < 20; i++) {
+                int state = randomState(random);
+                assertEquals(entries + " " + state, entries.get(state), table.get(state));
+            }
+            for (int state : entries.keySet())
+                assertEquals(entries + " " + state, entries.get(state), table.get(state));
+        }
+    }
+
+    // Mostly small states, with some near the end of the array, beyond it and negative
+    private static int randomState(Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return random.nextInt(8);
+            case 1:
+                return 1020 + random.nextInt(8);
+            case 2:
+                return -random.nextInt(8) - 1;
+            default:
+                return random.nextInt();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package io.github.mrblobman.spigotcommandlib.registry;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandMap;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.scheduler.BukkitScheduler;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * A server for tests that answers just enough of the Bukkit API to run a {@link CommandLib}.
+ * Every part of it is a proxy, calls that are not answered return null, false or 0. The
+ * thread that last called {@link #install()} is the main thread.
+ */
+public final class StubServer {
+    /**
+     * {@link CommandRegistry} reads the command map reflectively, like from a CraftServer.
+     */
+    public interface CommandMapHolder {
+        CommandMap getCommandMap();
+    }
+
+    private static final Logger LOGGER = Logger.getLogger("StubServer");
+    private static final AtomicInteger offThreadPermissionChecks = new AtomicInteger();
+    private static final AtomicInteger offThreadPlayerLookups = new AtomicInteger();
+    private static final List<Player> onlinePlayers = new CopyOnWriteArrayList<>();
+    private static volatile Thread mainThread;
+
+    private StubServer() {}
+
+    /**
+     * Make the current thread the main thread, installing the server the first time.
+     */
+    public static synchronized void install() {
+        mainThread = Thread.currentThread();
+        offThreadPermissionChecks.set(0);
+        offThreadPlayerLookups.set(0);
+        onlinePlayers.clear();
+        if (Bukkit.getServer() != null)
+            return;
+
+        PluginManager pluginManager = proxy(PluginManager.class, (proxy, method, args) -> null);
+        BukkitScheduler scheduler = proxy(BukkitScheduler.class, (proxy, method, args) -> null);
+
+        Bukkit.setServer((Server) proxy(Server.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getLogger":
+                    return LOGGER;
+                case "getName":
+                case "getVersion":
+                case "getBukkitVersion":
+                    return "stub";
+                case "isPrimaryThread":
+                    return Thread.currentThread() == mainThread;
+                case "getOnlinePlayers":
+                    if (Thread.currentThread() != mainThread)
+                        offThreadPlayerLookups.incrementAndGet();
+                    return Collections.unmodifiableList(onlinePlayers);
+                case "getPluginManager":
+                    return pluginManager;
+                case "getScheduler":
+                    return scheduler;
+                case "getCommandMap":
+                    // Each lib gets a map of its own
+                    return createCommandMap();
+                default:
+                    return null;
+            }
+        }, CommandMapHolder.class));
+    }
+
+    /**
+     * @return the number of permission checks made off the main thread since {@link #install()}
+     */
+    public static int getOffThreadPermissionChecks() {
+        return offThreadPermissionChecks.get();
+    }
+
+    /**
+     * @return the number of times the online players were read or a player's visibility was
+     *         checked off the main thread since {@link #install()}
+     */
+    public static int getOffThreadPlayerLookups() {
+        return offThreadPlayerLookups.get();
+    }
+
+    public static Plugin createPlugin(String name) {
+        Logger logger = Logger.getLogger(name);
+        return proxy(Plugin.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getLogger":
+                    return logger;
+                case "getName":
+                    return name;
+                case "isEnabled":
+                    return true;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    /**
+     * Create an online player with the {@code permissions}. Permission checks made off the
+     * main thread are counted, see {@link #getOffThreadPermissionChecks()}. The player is
+     * online until the next {@link #install()}.
+     */
+    public static Player createPlayer(String name, String... permissions) {
+        UUID id = UUID.nameUUIDFromBytes(name.getBytes());
+        Set<String> granted = new HashSet<>(Arrays.asList(permissions));
+        Player player = proxy(Player.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getUniqueId":
+                    return id;
+                case "getName":
+                    return name;
+                case "hasPermission":
+                    if (Thread.currentThread() != mainThread)
+                        offThreadPermissionChecks.incrementAndGet();
+                    return granted.contains(String.valueOf(args[0]));
+                case "canSee":
+                    if (Thread.currentThread() != mainThread)
+                        offThreadPlayerLookups.incrementAndGet();
+                    return true;
+                default:
+                    return null;
+            }
+        });
+        onlinePlayers.add(player);
+        return player;
+    }
+
+    private static CommandMap createCommandMap() {
+        Map<String, Command> commands = new ConcurrentHashMap<>();
+        return proxy(CommandMap.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "register":
+                    if (args.length != 3)
+                        return false;
+                    String label = ((String) args[0]).toLowerCase();
+                    String prefix = ((String) args[1]).toLowerCase();
+                    Command command = (Command) args[2];
+                    commands.put(prefix + ":" + label, command);
+                    boolean registered = commands.putIfAbsent(label, command) == null;
+                    if (command.getAliases() != null)
+                        command.getAliases().forEach(alias -> commands.putIfAbsent(alias.toLowerCase(), command));
+                    return registered;
+                case "getCommand":
+                    return commands.get(((String) args[0]).toLowerCase());
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler, Class<?>... extra) {
+        Class<?>[] interfaces = new Class<?>[extra.length + 1];
+        interfaces[0] = type;
+        System.arraycopy(extra, 0, interfaces, 1, extra.length);
+
+        return type.cast(Proxy.newProxyInstance(StubServer.class.getClassLoader(), interfaces, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+                }
+            }
+
+            Object result = handler.invoke(proxy, method, args);
+            return result != null || !method.getReturnType().isPrimitive() ? result : defaultValue(method.getReturnType());
+        }));
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0F;
+        if (type == double.class) return 0D;
+        if (type == void.class) return null;
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        return 0;
+    }
+}
@@ -0,0 +1,80 @@
+package io.github.mrblobman.spigotcommandlib.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the prefix ranges of {@link SearchUtils} against a linear scan with
+ * {@link SearchUtils#startsWithIgnoreCase(String, String)}.
+ */
+public class SearchUtilsTest {
+    // Mixed case and letters whose upper and lower case mappings are not symmetric:
+    // the dotless and dotted i, the Kelvin sign, the final sigma and the sharp s
+    private static final char[] ALPHABET = {
+            'a', 'A', 'b', 'B', 'i', 'I', '\u0131', '\u0130', 'k', 'K', '\u212A',
+            '\u03C3', '\u03A3', '\u03C2', '\u00DF', '\u00E9', '\u00C9', '_', '1'
+    };
+    private static final int RUNS = 20000;
+
+    private static String randomString(Random random, int maxLength) {
+        char[] chars = new char[random.nextInt(maxLength + 1)];
+        for (int i = 0; i < chars.length; i++)
+            chars[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+        return new String(chars);
+    }
+
+    private static void assertRange(String[] sorted, String prefix) {
+        // The strings before the prefix and the strings starting with it
+        int before = 0;
+        int matching = 0;
+        for (String s : sorted) {
+            if (SearchUtils.startsWithIgnoreCase(s, prefix))
+                matching++;
+            else if (String.CASE_INSENSITIVE_ORDER.compare(s, prefix) < 0)
+                before++;
+        }
+
+        String message = Arrays.toString(sorted) + " " + prefix;
+        int start = SearchUtils.prefixStart(sorted, prefix);
+        int end = SearchUtils.prefixEnd(sorted, prefix);
+        assertEquals(message, before, start);
+        assertEquals(message, before + matching, end);
+        for (int i = start; i < end; i++)
+            assertTrue(message, SearchUtils.startsWithIgnoreCase(sorted[i], prefix));
+    }
+
+    @Test
+    public void examples() {
+        String[] sorted = { "alpha", "Alpine", "beta", "BETTER", "gamma" };
+        assertRange(sorted, "");
+        assertRange(sorted, "al");
+        assertRange(sorted, "ALP");
+        assertRange(sorted, "bet");
+        assertRange(sorted, "betaa");
+        assertRange(sorted, "z");
+        assertRange(sorted, "0");
+        assertRange(new String[0], "a");
+    }
+
+    @Test
+    public void matchesLinearScan() {
+        Random random = new Random(0x5ea5c4);
+        for (int run = 0; run < RUNS; run++) {
+            String[] sorted = new String[random.nextInt(16)];
+            for (int i = 0; i < sorted.length; i++)
+                sorted[i] = randomString(random, 4);
+            Arrays.sort(sorted, String.CASE_INSENSITIVE_ORDER);
+
+            assertRange(sorted, randomString(random, 3));
+            if (sorted.length > 0) {
+                String key = sorted[random.nextInt(sorted.length)];
+                assertRange(sorted, key.substring(0, random.nextInt(key.length() + 1)));
+            }
+        }
+    }
+}